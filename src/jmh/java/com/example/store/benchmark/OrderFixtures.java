@@ -0,0 +1,124 @@
+package com.example.store.benchmark;
+
+import com.example.store.api.dto.OrderCustomerDTO;
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderRow;
+import com.example.store.repository.projection.ProductSummaryView;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic test data for the benchmarks: {@code orders} orders, ten per customer, each with
+ * {@code productsPerOrder} products out of a catalogue of 1000.
+ */
+public final class OrderFixtures {
+
+    private static final int CATALOGUE = 1000;
+
+    private OrderFixtures() {
+        // this class is a static utility. Should not be instantiated
+    }
+
+    public static List<OrderRow> rows(int orders) {
+        List<OrderRow> rows = new ArrayList<>(orders);
+        for (long id = 1; id <= orders; id++) {
+            rows.add(new Row(id, "Order " + id, customerId(id), "Customer " + customerId(id)));
+        }
+        return rows;
+    }
+
+    /** Join rows ordered by (order id, product id), like the order_product queries. */
+    public static List<ProductSummaryView> productViews(int orders, int productsPerOrder) {
+        List<ProductSummaryView> views = new ArrayList<>(orders * productsPerOrder);
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            for (int i = 0; i < productsPerOrder; i++) {
+                long productId = productId(orderId, i);
+                views.add(new ProductView(orderId, productId, "Product " + productId));
+            }
+        }
+        return views;
+    }
+
+    public static List<OrderDTO> dtos(int orders, int productsPerOrder) {
+        List<OrderDTO> dtos = new ArrayList<>(orders);
+        for (long id = 1; id <= orders; id++) {
+            OrderDTO dto = new OrderDTO();
+            dto.setId(id);
+            dto.setDescription("Order " + id);
+            OrderCustomerDTO customer = new OrderCustomerDTO();
+            customer.setId(customerId(id));
+            customer.setName("Customer " + customerId(id));
+            dto.setCustomer(customer);
+            List<ProductSummaryDTO> products = new ArrayList<>(productsPerOrder);
+            for (int i = 0; i < productsPerOrder; i++) {
+                ProductSummaryDTO product = new ProductSummaryDTO();
+                product.setId(productId(id, i));
+                product.setDescription("Product " + product.getId());
+                products.add(product);
+            }
+            dto.setProducts(products);
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    /** An OrderRepository that serves the fetch-all queries from memory, so only the Java side is measured. */
+    public static OrderRepository inMemoryRepository(List<OrderRow> rows, List<ProductSummaryView> productViews) {
+        return (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(),
+                new Class<?>[] {OrderRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllRows" -> rows;
+                    case "findAllOrderProducts" -> productViews;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /** A transaction manager without a database behind it, for services that open their own transactions. */
+    public static PlatformTransactionManager noTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    private static long customerId(long orderId) {
+        return (orderId - 1) / 10 + 1;
+    }
+
+    private static long productId(long orderId, int i) {
+        return (orderId * 31 + i * 7L) % CATALOGUE + 1;
+    }
+
+    private record Row(Long id, String description, Long customerId, String customerName) implements OrderRow {
+        @Override public Long getId() { return id; }
+        @Override public String getDescription() { return description; }
+        @Override public Long getCustomerId() { return customerId; }
+        @Override public String getCustomerName() { return customerName; }
+        @Override public List<ProductSummaryView> getProducts() { return List.of(); }
+    }
+
+    private record ProductView(Long orderId, Long productId, String productDescription) implements ProductSummaryView {
+        @Override public Long getOrderId() { return orderId; }
+        @Override public Long getProductId() { return productId; }
+        @Override public String getProductDescription() { return productDescription; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.store.controller;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.benchmark.OrderFixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Jackson serialization of the fetch-all response body. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int orders;
+
+    @Param({"1", "5", "20"})
+    int productsPerOrder;
+
+    List<OrderDTO> dtos;
+    ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        dtos = OrderFixtures.dtos(orders, productsPerOrder);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, OrderDTO.class));
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws Exception {
+        return writer.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.store.mapper;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.benchmark.OrderFixtures;
+import com.example.store.repository.projection.OrderRow;
+import com.example.store.repository.projection.ProductSummaryView;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** The generated MapStruct conversions used for every order and order_product row of a fetch-all. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderMapperBenchmark {
+
+    @Param({"1000", "10000"})
+    int orders;
+
+    @Param({"1", "5"})
+    int productsPerOrder;
+
+    OrderMapper mapper = Mappers.getMapper(OrderMapper.class);
+    List<OrderRow> rows;
+    List<ProductSummaryView> productViews;
+
+    @Setup
+    public void setUp() {
+        rows = OrderFixtures.rows(orders);
+        productViews = OrderFixtures.productViews(orders, productsPerOrder);
+    }
+
+    @Benchmark
+    public void rowToDto(Blackhole bh) {
+        for (OrderRow row : rows) {
+            OrderDTO dto = mapper.rowToDto(row);
+            bh.consume(dto);
+        }
+    }
+
+    @Benchmark
+    public void toProductSummaryDto(Blackhole bh) {
+        for (ProductSummaryView view : productViews) {
+            ProductSummaryDTO dto = mapper.toProductSummaryDto(view);
+            bh.consume(dto);
+        }
+    }
+}
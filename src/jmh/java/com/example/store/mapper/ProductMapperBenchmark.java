@@ -0,0 +1,55 @@
+package com.example.store.mapper;
+
+import com.example.store.api.dto.ProductDTO;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * ProductMapper.toDto with the order ids passed in (the list endpoints) against the @AfterMapping fallback that reads
+ * them from an initialized {@code orders} collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductMapperBenchmark {
+
+    @Param({"0", "10", "1000"})
+    int ordersPerProduct;
+
+    ProductMapper mapper = Mappers.getMapper(ProductMapper.class);
+    Product withOrders;
+    Product withoutOrders;
+    List<Long> orderIds;
+
+    @Setup
+    public void setUp() {
+        orderIds = new ArrayList<>(LongStream.rangeClosed(1, ordersPerProduct).boxed().toList());
+        Set<Order> orders = new LinkedHashSet<>();
+        for (Long id : orderIds) {
+            Order order = new Order();
+            order.setId(id);
+            orders.add(order);
+        }
+        withOrders = Product.builder().id(1L).description("Widget").orders(orders).build();
+        withoutOrders = Product.builder().id(1L).description("Widget").build();
+    }
+
+    @Benchmark
+    public ProductDTO explicitOrderIds() {
+        return mapper.toDto(withoutOrders, orderIds);
+    }
+
+    @Benchmark
+    public ProductDTO fallbackToLoadedOrders() {
+        return mapper.toDto(withOrders, List.of());
+    }
+}
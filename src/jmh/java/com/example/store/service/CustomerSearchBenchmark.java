@@ -0,0 +1,99 @@
+package com.example.store.service;
+
+import com.example.store.repository.projection.CustomerNameView;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomerSearchIndex against the database path for a page of 25 substring matches plus the total count.
+ * <p>
+ * The database side runs the same upper(name) LIKE query and count on an embedded H2, so it excludes the network
+ * round trips that dominate in production (two per search) and is a lower bound for the real database cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CustomerSearchBenchmark {
+
+    private static final String[] FIRST = {"Ann", "Bob", "Carla", "Dmitri", "Eve", "Farah", "Gus", "Hannah", "Ivan", "Jo"};
+    private static final String[] LAST = {"Lee", "Smith", "Annandale", "Brown", "Okafor", "Nguyen", "Garcia", "Müller"};
+
+    @Param({"10000", "100000"})
+    int customers;
+
+    @Param({"an", "ann", "smith"})
+    String term;
+
+    CustomerSearchIndex index;
+    Connection connection;
+    PreparedStatement page;
+    PreparedStatement count;
+
+    @Setup
+    public void setUp() throws SQLException {
+        List<CustomerNameView> names = new ArrayList<>(customers);
+        for (long id = 1; id <= customers; id++) {
+            names.add(new Name(id, FIRST[(int) (id % FIRST.length)] + " " + LAST[(int) (id / 7 % LAST.length)] + " " + id));
+        }
+
+        index = new CustomerSearchIndex(null);
+        index.load(names);
+        System.out.printf("%nindex: %d customers, %d trigrams, ~%d KiB%n",
+                index.size(), index.trigramCount(), index.estimatedFootprintBytes() / 1024);
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:search" + customers + ";DB_CLOSE_DELAY=-1");
+        connection.createStatement().execute("create table if not exists customer (id bigint primary key, name varchar(255))");
+        connection.createStatement().execute("delete from customer");
+        try (PreparedStatement insert = connection.prepareStatement("insert into customer (id, name) values (?, ?)")) {
+            for (CustomerNameView name : names) {
+                insert.setLong(1, name.getId());
+                insert.setString(2, name.getName());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        page = connection.prepareStatement(
+                "select id from customer where upper(name) like upper(?) order by id limit 25");
+        count = connection.prepareStatement("select count(*) from customer where upper(name) like upper(?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Result inMemoryIndex() {
+        return index.search(term, CustomerSearchService.Mode.SUBSTRING, 0, 25);
+    }
+
+    @Benchmark
+    public long database() throws SQLException {
+        String pattern = "%" + term + "%";
+        long found = 0;
+        page.setString(1, pattern);
+        try (ResultSet rs = page.executeQuery()) {
+            while (rs.next()) {
+                found += rs.getLong(1);
+            }
+        }
+        count.setString(1, pattern);
+        try (ResultSet rs = count.executeQuery()) {
+            rs.next();
+            return found + rs.getLong(1);
+        }
+    }
+
+    private record Name(Long id, String name) implements CustomerNameView {
+        @Override public Long getId() { return id; }
+        @Override public String getName() { return name; }
+    }
+}
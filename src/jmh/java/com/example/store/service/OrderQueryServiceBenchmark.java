@@ -0,0 +1,72 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.benchmark.OrderFixtures;
+import com.example.store.datasource.ParallelSnapshotReader;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.projection.OrderRow;
+import com.example.store.repository.projection.ProductSummaryView;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The Java side of the fetch-all path: grouping the order_product rows by order and stitching them onto the mapped
+ * order rows. The repository is served from memory, so database time is excluded.
+ * <p>
+ * {@code groupingByStitch} is the previous implementation (a HashMap keyed by boxed order ids, a new summary DTO per
+ * row) kept as the baseline for {@link ProductSummaryTable}. Compare the bytes allocated per operation with the gc
+ * profiler and divide by {@code orders} for bytes per order:
+ * {@code java -jar build/libs/*-jmh.jar OrderQueryServiceBenchmark -prof gc} (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderQueryServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int orders;
+
+    @Param({"1", "5", "20"})
+    int productsPerOrder;
+
+    OrderMapper mapper = Mappers.getMapper(OrderMapper.class);
+    List<OrderRow> rows;
+    List<ProductSummaryView> productViews;
+    OrderQueryService service;
+
+    @Setup
+    public void setUp() {
+        rows = OrderFixtures.rows(orders);
+        productViews = OrderFixtures.productViews(orders, productsPerOrder);
+        var repository = OrderFixtures.inMemoryRepository(rows, productViews);
+        service = new OrderQueryService(repository, mapper,
+                ParallelSnapshotReader.sequential(OrderFixtures.noTransactions()));
+    }
+
+    @Benchmark
+    public List<OrderDTO> findAllOrdersWithProducts() {
+        return service.findAllOrdersWithProducts();
+    }
+
+    @Benchmark
+    public List<OrderDTO> groupingByStitch() {
+        Map<Long, List<ProductSummaryDTO>> productsByOrder = productViews.stream()
+                .collect(Collectors.groupingBy(
+                        ProductSummaryView::getOrderId,
+                        Collectors.mapping(mapper::toProductSummaryDto, Collectors.toList())));
+        List<OrderDTO> result = new ArrayList<>(rows.size());
+        for (OrderRow r : rows) {
+            OrderDTO dto = mapper.rowToDto(r);
+            dto.setProducts(productsByOrder.getOrDefault(r.getId(), List.of()));
+            result.add(dto);
+        }
+        return result;
+    }
+}
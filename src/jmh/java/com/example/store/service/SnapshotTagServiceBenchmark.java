@@ -0,0 +1,25 @@
+package com.example.store.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** The ETag hash, computed on every conditional request. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotTagServiceBenchmark {
+
+    String basis;
+
+    @Setup
+    public void setUp() {
+        // the shape of a fetch-all basis: resource plus one version per payload table
+        basis = "|customer:1234|order:567890|order_product:98765|product:4321|";
+    }
+
+    @Benchmark
+    public String sha256Base64Url() {
+        return SnapshotTagService.sha256Base64Url(basis);
+    }
+}
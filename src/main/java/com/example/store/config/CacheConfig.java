@@ -0,0 +1,42 @@
+package com.example.store.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * In-process read caches (Caffeine) for the data that is read far more often than it changes:
+ * - products - ProductDTO by id (GET /products/{id})
+ * - customers - CustomerDTO by id (GET /customer/{id})
+ * Each cache is bounded by its Caffeine spec, {@code store.cache.<name>.spec} (e.g. maximumSize=10000,
+ * expireAfterWrite=10m). Statistics are always recorded and published as the cache.gets/cache.puts/cache.evictions
+ * metrics. Evictions issued inside a transaction are applied once it commits, so a concurrent read cannot put the
+ * pre-commit state back.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String CUSTOMERS = "customers";
+
+    private static final String DEFAULT_SPEC = "maximumSize=10000,expireAfterWrite=10m";
+
+    @Bean
+    public CacheManager cacheManager(Environment environment) {
+        CaffeineCacheManager caffeine = new CaffeineCacheManager();
+        caffeine.setAllowNullValues(false);
+        for (String name : List.of(PRODUCTS, CUSTOMERS)) {
+            String spec = environment.getProperty("store.cache." + name + ".spec", DEFAULT_SPEC);
+            caffeine.registerCustomCache(name, Caffeine.from(spec).recordStats().build());
+        }
+        return new TransactionAwareCacheManagerProxy(caffeine);
+    }
+}
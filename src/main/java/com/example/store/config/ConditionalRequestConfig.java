@@ -0,0 +1,76 @@
+package com.example.store.config;
+
+import com.example.store.controller.ConditionalRequestInterceptor;
+import com.example.store.service.SnapshotTagService;
+import com.example.store.service.readmodel.OrderReadModel;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the conditional GET support for the endpoints that do not compute their own validators. Each group lists
+ * the tables its responses are built from:
+ * - /order/{id} - the order, its product links, the products and the customer; the read model's tag when it is on
+ * - /customer/** - customers and their orders
+ * - /products/** - products and their order links
+ * The fetch-all GET /order keeps its own handling in the controller (it also serves the in-memory read model).
+ * The change versions behind the tags are memoized for store.conditional.version-refresh-interval; every write request
+ * drops the memo once it has completed, so this instance never serves a tag older than its own writes.
+ */
+@Configuration
+@EnableScheduling
+public class ConditionalRequestConfig {
+
+    @Bean
+    public WebMvcConfigurer conditionalRequestConfigurer(SnapshotTagService snapshotTagService,
+                                                         ObjectProvider<OrderReadModel> orderReadModel) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ConditionalRequestInterceptor(snapshotTagService,
+                                resource -> orderSnapshot(snapshotTagService, orderReadModel, resource)))
+                        .addPathPatterns("/order/*");
+                registry.addInterceptor(new ConditionalRequestInterceptor(snapshotTagService,
+                                List.of("customer", "order")))
+                        .addPathPatterns("/customer", "/customer/**");
+                registry.addInterceptor(new ConditionalRequestInterceptor(snapshotTagService,
+                                List.of("product", "order_product")))
+                        .addPathPatterns("/products", "/products/**");
+                registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                                Object handler, Exception ex) {
+                        // the transaction has committed by now (the controllers call @Transactional services)
+                        if (!isSafe(request.getMethod())) snapshotTagService.invalidate();
+                    }
+                });
+            }
+        };
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    // GET /order/{id} is answered from the read model when it is on, which can lag the tables by a poll interval:
+    // the tag must then be the view's, or a stale body would go out under a current tag and be confirmed by 304s.
+    // The read model tag moves on every applied change, so a body read from the table after a view miss is covered too.
+    private static SnapshotTagService.Snapshot orderSnapshot(SnapshotTagService snapshotTagService,
+                                                             ObjectProvider<OrderReadModel> orderReadModel,
+                                                             String resource) {
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        OrderReadModel.View view = readModel == null ? null : readModel.view();
+        return view != null
+                ? view.snapshot()
+                : snapshotTagService.forTables(SnapshotTagService.ORDER_PAYLOAD_TABLES, resource);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.store.config;
+
+import com.example.store.metrics.MeteredDataSource;
+import com.example.store.metrics.ResponseSizeMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Application metrics on top of what Spring Boot's Actuator records on its own. Everything is exported at
+ * /actuator/prometheus (and browsable at /actuator/metrics):
+ * - http.server.requests{method, uri, status, outcome} - a timer per controller method (uri is the route template),
+ *   with histogram buckets for percentiles, see management.metrics.distribution in application.yaml
+ * - http.server.response.size{method, uri, status} - response body bytes, see {@link ResponseSizeMetricsFilter}
+ * - spring.data.repository.invocations{repository, method, state} - a timer per repository method call
+ * - store.jdbc.statements{type} and store.jdbc.rows - JDBC round trips and rows read, see {@link MeteredDataSource}
+ *   (store.metrics.jdbc.enabled, on by default)
+ * - hikaricp.connections.* - pool size, active, idle, pending and acquire time, per pool
+ * - hibernate.* - sessions, statements, entity loads and second-level cache hits per region
+ *   (hibernate.generate_statistics)
+ * - cache.* - the Caffeine read caches, see CacheConfig
+ * - store.conditional.requests{result} - 304 ratio of the snapshot tag checks, see SnapshotTagService
+ * - store.order-cache.requests{result} and store.order-cache.size - the fetch-all body cache, see OrderResponseCache
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "store.metrics.jdbc", name = "enabled", matchIfMissing = true)
+    public static BeanPostProcessor meteredDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the application DataSource only: with a replica that is the routing DataSource over both pools
+                if (bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)
+                        && beanName.equals("dataSource")) {
+                    return new MeteredDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder jdbcMetrics(DataSource dataSource) {
+        return dataSource instanceof MeteredDataSource metered ? metered : registry -> { };
+    }
+
+    @Bean
+    public ResponseSizeMetricsFilter responseSizeMetricsFilter(MeterRegistry meterRegistry) {
+        return new ResponseSizeMetricsFilter(meterRegistry);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.store.config;
+
+import com.example.store.datasource.ParallelSnapshotReader;
+import com.example.store.metrics.MeteredDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the two queries of the fetch-all {@code GET /order} side by side (see {@link ParallelSnapshotReader}). Settings:
+ * - store.parallel-read.enabled - false to run them one after the other in one transaction
+ * - store.parallel-read.pool-size - reads running at once; each holds a connection, two per request, so twice this
+ *   must fit in every Hikari pool (primary and replica), which is checked at start-up
+ * - store.parallel-read.queue-capacity - reads waiting for a thread (platform threads only); beyond it requests fail
+ * - store.parallel-read.snapshot-timeout - how long one read waits for the other to export or import the snapshot
+ * The reads only run in parallel on PostgreSQL, where they share an exported snapshot; on other databases they are
+ * sequential so the stitched result stays consistent. In virtual-thread mode the reads run on virtual threads.
+ * The executor is not a bean, so the auto-configured application task executor is left alone.
+ */
+@Configuration
+public class ParallelReadConfig {
+
+    @Bean
+    public static BeanPostProcessor parallelReadPoolSizeGuard(Environment environment) {
+        int poolSize = environment.getProperty("store.parallel-read.pool-size", Integer.class, 4);
+        boolean parallel = parallel(environment.getProperty("store.parallel-read.enabled", Boolean.class, true),
+                environment.getProperty("spring.datasource.url", ""));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // a pool behind MetricsConfig's MeteredDataSource is checked as well
+                HikariDataSource pool = bean instanceof MeteredDataSource metered
+                        ? DataSourceUnwrapper.unwrap(metered, HikariDataSource.class)
+                        : bean instanceof HikariDataSource hikari ? hikari : null;
+                if (parallel && pool != null && pool.getMaximumPoolSize() < 2 * poolSize) {
+                    // a burst of fetch-alls would take every connection, and their second reads would wait on the
+                    // first reads for one
+                    throw new IllegalStateException("Connection pool '" + beanName + "' maximum-pool-size "
+                            + pool.getMaximumPoolSize() + " is smaller than twice store.parallel-read.pool-size "
+                            + poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ParallelSnapshotReader parallelSnapshotReader(
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            Environment environment,
+            @Value("${spring.datasource.url:}") String datasourceUrl,
+            @Value("${store.parallel-read.enabled:true}") boolean enabled,
+            @Value("${store.parallel-read.pool-size:4}") int poolSize,
+            @Value("${store.parallel-read.queue-capacity:100}") int queueCapacity,
+            @Value("${store.parallel-read.snapshot-timeout:PT5S}") Duration snapshotTimeout) {
+        if (!parallel(enabled, datasourceUrl)) {
+            return ParallelSnapshotReader.sequential(transactionManager);
+        }
+        return new ParallelSnapshotReader(transactionManager, jdbcTemplate,
+                executor(Threading.VIRTUAL.isActive(environment), poolSize, queueCapacity), true, snapshotTimeout);
+    }
+
+    private static boolean parallel(boolean enabled, String datasourceUrl) {
+        return enabled && DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.POSTGRESQL;
+    }
+
+    private static Executor executor(boolean virtualThreads, int poolSize, int queueCapacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("parallel-read-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("parallel-read-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.store.config;
+
+import com.example.store.repository.OrderRepository;
+import com.example.store.service.OrderQueryService;
+import com.example.store.service.readmodel.LogicalDecodingOrderChangeFeed;
+import com.example.store.service.readmodel.OrderChangeFeed;
+import com.example.store.service.readmodel.OrderReadModel;
+import com.example.store.service.readmodel.UpdatedAtPollingOrderChangeFeed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+/**
+ * Optional in-memory order read model (off by default). Settings:
+ * - store.read-model.enabled - true to serve GET /order and GET /order/{id} from memory
+ * - store.read-model.feed - logical-decoding (the default; needs wal_level=logical and the REPLICATION role
+ *   attribute, see README) or polling (for servers without them; sees deletes only at the next reconcile)
+ * - store.read-model.poll-interval / poll-overlap / reconcile-interval - ISO-8601 durations
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "store.read-model", name = "enabled", havingValue = "true")
+public class ReadModelConfig {
+
+    @Bean
+    public OrderChangeFeed orderChangeFeed(@Value("${store.read-model.feed:logical-decoding}") String feed,
+                                           @Value("${store.read-model.poll-overlap:PT5S}") Duration overlap,
+                                           @Value("${store.read-model.slot-name:store_order_read_model}") String slotName,
+                                           DataSourceProperties dataSource,
+                                           JdbcTemplate jdbcTemplate) {
+        return switch (feed) {
+            case "logical-decoding" -> new LogicalDecodingOrderChangeFeed(dataSource.determineUrl(),
+                    dataSource.determineUsername(), dataSource.determinePassword(), slotName);
+            case "polling" -> new UpdatedAtPollingOrderChangeFeed(jdbcTemplate, overlap);
+            // a misspelt value would otherwise silently select the other feed
+            default -> throw new IllegalStateException(
+                    "store.read-model.feed must be logical-decoding or polling, not " + feed);
+        };
+    }
+
+    @Bean
+    public OrderReadModel orderReadModel(OrderRepository orderRepository, OrderQueryService orderQueryService,
+                                         OrderChangeFeed orderChangeFeed) {
+        return new OrderReadModel(orderRepository, orderQueryService, orderChangeFeed);
+    }
+}
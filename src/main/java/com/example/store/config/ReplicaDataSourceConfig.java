@@ -0,0 +1,85 @@
+package com.example.store.config;
+
+import com.example.store.datasource.ReplicaLagMonitor;
+import com.example.store.datasource.ReplicaRoutingDataSource;
+import com.example.store.datasource.ReplicaRoutingFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Optional read replica (off unless {@code store.datasource.replica.jdbc-url} is set). Settings:
+ * - store.datasource.replica.jdbc-url / username / password - plus any other Hikari pool setting for the replica pool
+ * - store.datasource.replica.max-lag - ISO-8601 duration; a replica further behind is bypassed until it catches up
+ * - store.datasource.replica.lag-check-interval - how often the lag is measured
+ * The application DataSource hands out connections lazily: the first statement of a
+ * {@code @Transactional(readOnly = true)} transaction gets a replica connection (see {@link ReplicaRoutingDataSource}),
+ * everything else - writes, Liquibase, statements outside a transaction such as the snapshot tag lookup - gets the
+ * primary. Replaces the auto-configured DataSource; the primary pool is still configured by spring.datasource.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "store.datasource.replica", name = "jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("store.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${store.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(new JdbcTemplate(primary), new JdbcTemplate(replica), maxLag,
+                Clock.systemUTC());
+        meterRegistry.ifAvailable(registry -> Gauge.builder("store.datasource.replica.lag", monitor,
+                        ReplicaLagMonitor::lagMillis)
+                .baseUnit("milliseconds")
+                .description("Time since the newest primary state the read replica is known to contain")
+                .register(registry));
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica, replicaLagMonitor));
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingFilter replicaRoutingFilter() {
+        return new ReplicaRoutingFilter();
+    }
+}
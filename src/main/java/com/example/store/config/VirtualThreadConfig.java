@@ -0,0 +1,74 @@
+package com.example.store.config;
+
+import com.example.store.metrics.MeteredDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Virtual-thread mode, opt-in with {@code spring.threads.virtual.enabled=true} (Java 21). Spring Boot then runs the
+ * Tomcat request threads, MVC async requests (the NDJSON stream), {@code @Scheduled} work and the application task
+ * executor on virtual threads, so a request waiting on a JDBC round trip no longer holds a platform thread.
+ * <p>
+ * The number of requests in flight is then bounded by the connection pool instead of the Tomcat thread pool, so the
+ * pool sizing guidance is enforced at start-up for every Hikari pool (primary and replica):
+ * - maximum-pool-size at most {@code store.virtual-threads.max-pool-size}: size the pool for the database (roughly
+ *   twice its cores), not for the number of concurrent requests - the extra virtual threads queue for a connection
+ * - a fixed size pool (minimum-idle unset or equal to maximum-pool-size), so a burst does not pay for connection setup
+ * - connection-timeout at most {@code store.virtual-threads.max-connection-timeout}, so an overloaded pool fails
+ *   requests quickly instead of piling up waiters
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariPoolSizeGuard(Environment environment) {
+        int maxPoolSize = environment.getProperty("store.virtual-threads.max-pool-size", Integer.class, 20);
+        Duration maxConnectionTimeout = environment.getProperty(
+                "store.virtual-threads.max-connection-timeout", Duration.class, Duration.ofSeconds(5));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // a pool behind MetricsConfig's MeteredDataSource is checked as well
+                HikariDataSource pool = bean instanceof MeteredDataSource metered
+                        ? DataSourceUnwrapper.unwrap(metered, HikariDataSource.class)
+                        : bean instanceof HikariDataSource hikari ? hikari : null;
+                if (pool != null) {
+                    List<String> problems = checkPool(pool, maxPoolSize, maxConnectionTimeout);
+                    if (!problems.isEmpty()) {
+                        throw new IllegalStateException("Connection pool '" + beanName
+                                + "' does not follow the virtual-thread sizing rules: " + String.join("; ", problems));
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static List<String> checkPool(HikariDataSource pool, int maxPoolSize, Duration maxConnectionTimeout) {
+        List<String> problems = new ArrayList<>();
+        if (pool.getMaximumPoolSize() > maxPoolSize) {
+            problems.add("maximum-pool-size " + pool.getMaximumPoolSize()
+                    + " exceeds store.virtual-threads.max-pool-size " + maxPoolSize);
+        }
+        if (pool.getMinimumIdle() >= 0 && pool.getMinimumIdle() != pool.getMaximumPoolSize()) {
+            problems.add("minimum-idle " + pool.getMinimumIdle() + " should equal maximum-pool-size "
+                    + pool.getMaximumPoolSize() + " (or be left unset)");
+        }
+        if (pool.getConnectionTimeout() > maxConnectionTimeout.toMillis()) {
+            problems.add("connection-timeout " + pool.getConnectionTimeout()
+                    + "ms exceeds store.virtual-threads.max-connection-timeout " + maxConnectionTimeout);
+        }
+        return problems;
+    }
+}
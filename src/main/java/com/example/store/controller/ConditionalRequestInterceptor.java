@@ -0,0 +1,68 @@
+package com.example.store.controller;
+
+import com.example.store.service.SnapshotTagService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Answers conditional GETs (If-None-Match / If-Modified-Since) before the controller runs.
+ * <p>
+ * The validator is the change version of every table the response is built from (see {@link SnapshotTagService}),
+ * folded together with the request path and query, so one small lookup decides whether the main query can be skipped
+ * and a 304 returned. On a 200 the ETag and Last-Modified are already on the response for the controller to complete.
+ * The tag is read before the body, so a write racing with the request can only make the next poll refetch.
+ */
+public class ConditionalRequestInterceptor implements HandlerInterceptor {
+
+    private final SnapshotTagService snapshotTagService;
+    // the validator of a resource (path and query string)
+    private final Function<String, SnapshotTagService.Snapshot> snapshots;
+
+    public ConditionalRequestInterceptor(SnapshotTagService snapshotTagService, List<String> tables) {
+        this(snapshotTagService, forTables(snapshotTagService, List.copyOf(tables)));
+    }
+
+    /**
+     * For responses that are not always built from the tables, e.g. GET /order/{id} served from the read model: the
+     * validator must describe the source the body actually comes from.
+     */
+    public ConditionalRequestInterceptor(SnapshotTagService snapshotTagService,
+                                         Function<String, SnapshotTagService.Snapshot> snapshots) {
+        this.snapshotTagService = snapshotTagService;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return true;
+        }
+
+        String resource = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        SnapshotTagService.Snapshot current = snapshots.apply(resource);
+
+        response.setHeader(HttpHeaders.ETAG, current.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, current.lastModified());
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (snapshotTagService.matchesConditional(ifNoneMatch, ifModifiedSince, current)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private static Function<String, SnapshotTagService.Snapshot> forTables(SnapshotTagService snapshotTagService,
+                                                                           List<String> tables) {
+        return resource -> snapshotTagService.forTables(tables, resource);
+    }
+}
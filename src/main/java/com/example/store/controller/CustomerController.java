@@ -4,16 +4,24 @@ import com.example.store.controller.api.CustomerApi;
 import com.example.store.entity.Customer;
 import com.example.store.mapper.CustomerMapper;
 import com.example.store.repository.CustomerRepository;
+import com.example.store.api.dto.BulkCreateResultDTO;
 import com.example.store.api.dto.CustomerDTO;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.CustomerQueryService;
+import com.example.store.service.CustomerSearchService;
 
+import com.example.store.utils.CursorUtility;
 import com.example.store.utils.ResponseUtility;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -22,8 +30,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
 
 @RestController
 @RequestMapping("/customer")
@@ -32,21 +43,29 @@ public class CustomerController implements CustomerApi {
 
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
+    private final CustomerSearchService customerSearchService;
+    private final CustomerQueryService customerQueryService;
+    private final BulkInsertService bulkInsertService;
+    private final ObjectMapper objectMapper;
 
 
     @Override
     @GetMapping
-    public ResponseEntity<List<CustomerDTO>> getCustomers(@Parameter Integer limit, @Parameter Integer offset) {
-
+    public ResponseEntity<List<CustomerDTO>> getCustomers(@Parameter Integer limit, @Parameter Integer offset,
+                                                          @Parameter String cursor, @Parameter Boolean includeTotal) {
+        if ( cursor != null ) {
+            return getCustomersAfter(cursor, limit, includeTotal,
+                    customerRepository::findByIdGreaterThan, customerRepository::count);
+        }
         if ( limit == null || limit == 0 ) {
             // for backward compatability we return all customers.
-            return ResponseEntity.ok(customerMapper.customersToCustomerDTOs(customerRepository.findAll()));
+            return ResponseEntity.ok(customerQueryService.findAllCustomersWithOrders());
         }
         int page = offset / limit; // assumes that the offset is the total number of records to offset.
         Pageable pageable = PageRequest.of(page, limit);
         Page<Customer> customers = customerRepository.findAll(pageable);
         HttpHeaders headers = getPageableHeaders(limit, offset, customers);
-        return new ResponseEntity<>(customerMapper.customersToCustomerDTOs(customers.getContent()), headers, HttpStatus.OK);
+        return new ResponseEntity<>(customerQueryService.withOrders(customers.getContent()), headers, HttpStatus.OK);
     }
 
     private static HttpHeaders getPageableHeaders(Integer limit, Integer offset, Page<Customer> customers) {
@@ -57,18 +76,48 @@ public class CustomerController implements CustomerApi {
         return headers;
     }
 
+    // keyset page on the primary key: a deep page costs the same as the first one and the count is opt-in.
+    private ResponseEntity<List<CustomerDTO>> getCustomersAfter(String cursor, Integer limit, Boolean includeTotal,
+                                                               BiFunction<Long, Pageable, List<Customer>> pageQuery,
+                                                               LongSupplier totalCount) {
+        int pageSize = limit == null ? ResponseUtility.DEFAULT_LIMIT : Math.max(1, limit);
+        long afterId = CursorUtility.isFirstPage(cursor) ? 0L : CursorUtility.decodeId(cursor);
+        // read one extra row to find out whether there is a next page without a count query
+        List<Customer> customers = pageQuery.apply(afterId, PageRequest.of(0, pageSize + 1, Sort.by("id")));
+
+        String nextCursor = null;
+        if (customers.size() > pageSize) {
+            customers = customers.subList(0, pageSize);
+            nextCursor = CursorUtility.encodeId(customers.get(pageSize - 1).getId());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (Boolean.TRUE.equals(includeTotal)) {
+            headers.add("X-Total-Count", String.valueOf(totalCount.getAsLong()));
+        }
+        headers.add(HttpHeaders.LINK, ResponseUtility.buildCursorLinkHeader(pageSize, nextCursor));
+        return new ResponseEntity<>(customerQueryService.withOrders(customers), headers, HttpStatus.OK);
+    }
+
     @Override
     @GetMapping("/search")
-    public ResponseEntity<List<CustomerDTO>> searchCustomers( @Parameter String name, Integer limit, Integer offset) {
+    public ResponseEntity<List<CustomerDTO>> searchCustomers( @Parameter String name, Integer limit, Integer offset,
+                                                              String cursor, Boolean includeTotal, String mode) {
+        CustomerSearchService.Mode searchMode = CustomerSearchService.Mode.from(mode);
+        if ( cursor != null ) {
+            return getCustomersAfter(cursor, limit, includeTotal,
+                    (afterId, pageable) -> customerSearchService.searchAfter(name, searchMode, afterId, pageable),
+                    () -> customerSearchService.count(name, searchMode));
+        }
         if ( limit == null || limit == 0 ) {
-            return ResponseEntity.ok(customerMapper.customersToCustomerDTOs(customerRepository.findByNameIgnoreCaseContaining(name)));
+            return ResponseEntity.ok(customerQueryService.withOrders(customerSearchService.search(name, searchMode)));
         }
 
         int page = offset / limit;
         Pageable pageable = PageRequest.of(page, limit);
-        Page<Customer> customers = customerRepository.findByNameIgnoreCaseContaining(name, pageable);
+        Page<Customer> customers = customerSearchService.search(name, searchMode, pageable);
         HttpHeaders headers = getPageableHeaders(limit, offset, customers);
-        return new ResponseEntity<>(customerMapper.customersToCustomerDTOs(customers.getContent()), headers, HttpStatus.OK);
+        return new ResponseEntity<>(customerQueryService.withOrders(customers.getContent()), headers, HttpStatus.OK);
     }
 
     @Override
@@ -86,6 +135,7 @@ public class CustomerController implements CustomerApi {
 
         try {
             Customer savedCustomer = customerRepository.save(newCustomer);
+            customerSearchService.customerSaved(savedCustomer);
             CustomerDTO dto = customerMapper.customerToCustomerDTO(savedCustomer);
 
             URI location = ServletUriComponentsBuilder
@@ -102,13 +152,27 @@ public class CustomerController implements CustomerApi {
         }
     }
 
+    @Override
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createCustomersBulk(@RequestBody List<CustomerDTO> customers) {
+        return ResponseUtility.buildBulkCreatedResponse(customers.iterator(), bulkInsertService::insertCustomers);
+    }
+
+    /** NDJSON variant of the bulk create: one customer per line, inserted chunk by chunk while the body is read. */
+    @PostMapping(value = "/bulk", consumes = OrderController.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createCustomersBulkNdjson(HttpServletRequest request) throws IOException {
+        return ResponseUtility.buildBulkCreatedResponse(request.getInputStream(),
+                objectMapper.readerFor(CustomerDTO.class), bulkInsertService::insertCustomers);
+    }
+
     @Override
     @GetMapping("/{id}")
     public ResponseEntity<CustomerDTO> getCustomerById(@PathVariable Long id) {
         if ( id == null ) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         }
-        Customer customer = customerRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        return ResponseEntity.ok(customerMapper.customerToCustomerDTO(customer));
+        CustomerDTO customer = customerQueryService.findCustomerById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok(customer);
     }
 }
@@ -1,76 +1,213 @@
 package com.example.store.controller;
 
+import com.example.store.api.dto.BulkCreateResultDTO;
 import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
 import com.example.store.controller.api.OrderApi;
+import com.example.store.datasource.ReplicaRouting;
 import com.example.store.entity.Order;
 import com.example.store.mapper.OrderMapper;
 import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderPageRow;
 
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.CustomerQueryService;
+import com.example.store.service.OrderJsonRenderer;
 import com.example.store.service.OrderQueryService;
+import com.example.store.service.OrderResponseCache;
+import com.example.store.service.ProductQueryService;
 import com.example.store.service.SnapshotTagService;
+import com.example.store.service.readmodel.OrderReadModel;
+import com.example.store.utils.CursorUtility;
 import com.example.store.utils.ResponseUtility;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/order")
 @RequiredArgsConstructor
 public class OrderController implements OrderApi {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // the fetch-all GET /order has a JSON and an NDJSON representation (picked by Accept), the JSON one also gzipped
+    private static final String FETCH_ALL_VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
     private final SnapshotTagService snapshotTagService;
     private final OrderQueryService orderQueryService;
+    private final ObjectMapper objectMapper;
+    private final OrderResponseCache orderResponseCache;
+    private final BulkInsertService bulkInsertService;
+    private final CustomerQueryService customerQueryService;
+    private final ProductQueryService productQueryService;
+    // only present with store.read-model.enabled=true
+    private final ObjectProvider<OrderReadModel> orderReadModel;
+    // only present with store.order-cache.renderer=database
+    private final ObjectProvider<OrderJsonRenderer> orderJsonRenderer;
 
     @Override
     @GetMapping
-    public ResponseEntity<List<OrderDTO>> getOrders(@Parameter Integer limit, @Parameter Integer offset) {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ResponseEntity<List<OrderDTO>> getOrders(@Parameter Integer limit, @Parameter Integer offset,
+                                                    @Parameter String cursor, @Parameter Boolean includeTotal) {
+        if ( cursor != null ) {
+            return getOrdersAfter(cursor, limit, includeTotal);
+        }
         if ( limit == null ) {
-            SnapshotTagService.Snapshot current = snapshotTagService.current();
+            // the read model view is immutable, so its tag describes exactly the list served from it
+            OrderReadModel.View view = readModelView();
+            SnapshotTagService.Snapshot current = view != null ? view.snapshot() : snapshotTagService.current();
            HttpServletRequest request = currentRequest();
            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
            var ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
 
-           if (snapshotTagService.matchesConditional(ifNoneMatch, ifModifiedSince, current)) {
+           // the gzip body is a different representation with its own tag; the client may hold either
+           SnapshotTagService.Snapshot gzipped = current.forRepresentation("gzip");
+           SnapshotTagService.Snapshot matched =
+                   snapshotTagService.matchingRepresentation(ifNoneMatch, ifModifiedSince, current, gzipped);
+           if (matched != null) {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
-                    .eTag(current.etag())
+                    .eTag(matched.etag())
                     .lastModified(current.lastModified())
+                    .header(HttpHeaders.VARY, FETCH_ALL_VARY)
                     .build();
            }
 
 
-            List<OrderDTO> all = orderQueryService.findAllOrdersWithProducts();
-            return ResponseEntity.ok()
-                    .eTag(current.etag())
+            // same snapshot, same bytes: the body is only rebuilt and serialized when the tag moves
+            OrderJsonRenderer renderer = orderJsonRenderer.getIfAvailable();
+            OrderResponseCache.Entry body = view == null && renderer != null
+                    ? orderResponseCache.getRendered(current.etag(), renderer::renderAllOrders)
+                    : orderResponseCache.get(current.etag(),
+                            () -> view != null ? view.orders() : orderQueryService.findAllOrdersWithProducts());
+            boolean gzip = body.gzip() != null && acceptsGzip(request);
+            ResponseEntity<byte[]> response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(gzip ? gzipped.etag() : current.etag())
                     .lastModified(current.lastModified())
                     .header(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "ETag, Last-Modified")
-                    .body(all);
-
+                    .header(HttpHeaders.VARY, FETCH_ALL_VARY)
+                    .headers(h -> {
+                        if (gzip) h.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    })
+                    .body(gzip ? body.gzip() : body.json());
+            // the pre-serialized bytes are written as-is by the byte array converter, the declared type is the contract
+            return (ResponseEntity) response;
         }
-        int page = offset / limit;
+        int safeOffset = offset == null ? 0 : Math.max(0, offset);
+        int page = safeOffset / limit;
         Pageable pageable = PageRequest.of(page, limit);
-        Page<Order> orders = orderRepository.findAll(pageable);
-        List<OrderDTO> orderDTOs = orderMapper.ordersToOrderDTOs(orders.getContent());
+        // projection based: one query for the page of orders, one for just that page's products (plus the count)
+        Page<OrderDTO> orders = orderQueryService.findOrderPage(pageable);
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-Total-Count", String.valueOf(orders.getTotalElements()));
-        String links = ResponseUtility.buildLinkHeader(limit, offset, orders.getTotalElements());
-        headers.add(HttpHeaders.LOCATION, links);
-        return new ResponseEntity<>(orderDTOs, headers, HttpStatus.OK);
+        String links = ResponseUtility.buildLinkHeader(limit, safeOffset, orders.getTotalElements());
+        headers.add(HttpHeaders.LINK, links);
+        return new ResponseEntity<>(orders.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Streaming variant of the fetch-all path, selected with {@code Accept: application/x-ndjson}.
+     * Each order is written as one JSON document per line as soon as its products are known, so heap usage and
+     * time to first byte do not grow with the order table. Orders are streamed in id order.
+     * <p>
+     * The body differs from the JSON array's, so it gets its own tag (same snapshot, "-ndjson" suffix) and both
+     * representations send {@code Vary: Accept}.
+     * <p>
+     * The mapping has no params condition: Spring ranks params before produces, so one would make this method win over
+     * the JSON array for a wildcard Accept (or none at all). Pages are JSON only, hence the 406.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrders(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Paged orders are only available as JSON");
+        }
+        SnapshotTagService.Snapshot current = snapshotTagService.current().forRepresentation("ndjson");
+        HttpServletRequest request = currentRequest();
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        var ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+
+        if (snapshotTagService.matchesConditional(ifNoneMatch, ifModifiedSince, current)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(current.etag())
+                    .lastModified(current.lastModified())
+                    .header(HttpHeaders.VARY, FETCH_ALL_VARY)
+                    .build();
+        }
+
+        ObjectWriter writer = objectMapper.writerFor(OrderDTO.class);
+        // the body is written on another thread: carry over the routing decision made with the tag
+        boolean onPrimary = ReplicaRouting.isPinnedToPrimary();
+        StreamingResponseBody body = out -> ReplicaRouting.run(onPrimary,
+                () -> orderQueryService.streamAllOrdersWithProducts(dto -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(dto));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .eTag(current.etag())
+                .lastModified(current.lastModified())
+                .header(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "ETag, Last-Modified")
+                .header(HttpHeaders.VARY, FETCH_ALL_VARY)
+                .body(body);
+    }
+
+    // keyset page: seeks on (created_at, id) so a deep page costs the same as the first one.
+    private ResponseEntity<List<OrderDTO>> getOrdersAfter(String cursor, Integer limit, Boolean includeTotal) {
+        int pageSize = limit == null ? ResponseUtility.DEFAULT_LIMIT : Math.max(1, limit);
+        // read one extra row to find out whether there is a next page without a count query
+        Pageable window = PageRequest.of(0, pageSize + 1);
+        List<OrderPageRow> orders;
+        if (CursorUtility.isFirstPage(cursor)) {
+            orders = orderRepository.findFirstPage(window);
+        } else {
+            CursorUtility.OrderKey after = CursorUtility.decodeOrderKey(cursor);
+            orders = orderRepository.findPageAfter(after.createdAt(), after.id(), window);
+        }
+
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            OrderPageRow last = orders.get(pageSize - 1);
+            nextCursor = CursorUtility.encodeOrderKey(last.getCreatedAt(), last.getId());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (Boolean.TRUE.equals(includeTotal)) {
+            headers.add("X-Total-Count", String.valueOf(orderRepository.count()));
+        }
+        headers.add(HttpHeaders.LINK, ResponseUtility.buildCursorLinkHeader(pageSize, nextCursor));
+        return new ResponseEntity<>(orderQueryService.withProducts(orders), headers, HttpStatus.OK);
     }
 
     @Override
@@ -81,15 +218,87 @@ public class OrderController implements OrderApi {
         entity.setId(null);
         Order savedOrder = orderRepository.save(entity);
         OrderDTO orderDTO = orderMapper.orderToOrderDTO(savedOrder);
+
+        // the customer's and the products' cached details list their orders
+        List<Long> productIds = orderDTO.getProducts().stream().map(ProductSummaryDTO::getId).toList();
+        if (orderDTO.getCustomer() != null) {
+            customerQueryService.evict(orderDTO.getCustomer().getId());
+        }
+        productQueryService.evict(productIds);
         URI createdURI = URI.create("/order/" + orderDTO.getId());
         return ResponseEntity.created(createdURI).body(orderDTO);
     }
 
+    @Override
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createOrdersBulk(@RequestBody List<OrderDTO> orders) {
+        return ResponseUtility.buildBulkCreatedResponse(orders.iterator(), bulkInsertService::insertOrders);
+    }
+
+    /** NDJSON variant of the bulk create: one order per line, inserted chunk by chunk while the body is read. */
+    @PostMapping(value = "/bulk", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createOrdersBulkNdjson(HttpServletRequest request) throws IOException {
+        return ResponseUtility.buildBulkCreatedResponse(request.getInputStream(),
+                objectMapper.readerFor(OrderDTO.class), bulkInsertService::insertOrders);
+    }
+
     @Override
     @GetMapping("/{id}")
     public ResponseEntity<OrderDTO> getOrderById( @PathVariable Long id) {
-        Order anOrder = orderRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        return ResponseEntity.ok(orderMapper.orderToOrderDTO(anOrder));
+        OrderReadModel.View view = readModelView();
+        if (view != null) {
+            // an order created since the last poll is not in memory yet, so a miss still falls through to the table
+            var cached = view.findById(id);
+            if (cached.isPresent()) {
+                return ResponseEntity.ok(cached.get());
+            }
+        }
+        OrderDTO order = orderQueryService.findOrderById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok(order);
+    }
+
+    private OrderReadModel.View readModelView() {
+        OrderReadModel readModel = orderReadModel.getIfAvailable();
+        return readModel == null ? null : readModel.view();
+    }
+
+    // RFC 9110 section 12.5.3: gzip is acceptable when listed (or covered by "*") with a weight above 0,
+    // so "gzip;q=0" is a refusal
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    weight = qValue(param.substring(2));
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = weight;
+            } else if (coding.equals("*")) {
+                any = weight;
+            }
+        }
+        double weight = gzip != null ? gzip : any != null ? any : 0;
+        return weight > 0;
+    }
+
+    // a malformed weight counts as a refusal
+    private static double qValue(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     private static HttpServletRequest currentRequest() {
@@ -1,28 +1,41 @@
 package com.example.store.controller;
 
+import com.example.store.api.dto.BulkCreateResultDTO;
 import com.example.store.api.dto.ProductCreateDTO;
 import com.example.store.api.dto.ProductDTO;
 import com.example.store.controller.api.ProductApi;
 import com.example.store.entity.Product;
 import com.example.store.repository.ProductRepository;
+import com.example.store.repository.projection.ProductOrderView;
 import com.example.store.mapper.ProductMapper;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.ProductQueryService;
 
+import com.example.store.utils.CursorUtility;
 import com.example.store.utils.ResponseUtility;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
@@ -30,6 +43,9 @@ public class ProductController implements ProductApi {
 
     private final ProductRepository productRepository;
     private final ProductMapper mapper;
+    private final ProductQueryService productQueryService;
+    private final BulkInsertService bulkInsertService;
+    private final ObjectMapper objectMapper;
 
     @Override
     public ResponseEntity<ProductDTO> createProduct(@Valid ProductCreateDTO body) {
@@ -63,27 +79,38 @@ public class ProductController implements ProductApi {
         }
     }
 
+    @Override
+    @PostMapping(value = "/products/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createProductsBulk(@RequestBody List<ProductCreateDTO> products) {
+        return ResponseUtility.buildBulkCreatedResponse(products.iterator(), bulkInsertService::insertProducts);
+    }
+
+    /** NDJSON variant of the bulk create: one product per line, inserted chunk by chunk while the body is read. */
+    @PostMapping(value = "/products/bulk", consumes = OrderController.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkCreateResultDTO> createProductsBulkNdjson(HttpServletRequest request) throws IOException {
+        return ResponseUtility.buildBulkCreatedResponse(request.getInputStream(),
+                objectMapper.readerFor(ProductCreateDTO.class), bulkInsertService::insertProducts);
+    }
+
     @Override
     public ResponseEntity<ProductDTO> getProductById(Long id) {
-        return productRepository.findWithOrdersById(id)
-                .map(p -> {
-                    // Ensure we have order IDs even if orders weren’t fetched eagerly
-                    List<Long> orderIds = productRepository.findOrderIdsByProductId(p.getId());
-                    return ResponseEntity.ok()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .body(mapper.toDto(p, orderIds));
-                })
+        // cached; a miss is one round trip (the product row repeated per order id)
+        return productQueryService.findProductById(id)
+                .map(dto -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(dto))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @Override
-    public ResponseEntity<List<ProductDTO>> getProducts(Integer limit, Integer offset) {
+    public ResponseEntity<List<ProductDTO>> getProducts(Integer limit, Integer offset, String cursor, Boolean includeTotal) {
+        if (cursor != null) {
+            return getProductsAfter(cursor, limit, includeTotal);
+        }
         // Backward compatibility: if limit is omitted → return ALL (but still set X-Total-Count)
         if (limit == null) {
-            List<Product> all = productRepository.findAll(); // annotated with @EntityGraph in repo
-            List<ProductDTO> payload = all.stream()
-                    .map(p -> mapper.toDto(p, productRepository.findOrderIdsByProductId(p.getId())))
-                    .toList();
+            List<Product> all = productRepository.findAll();
+            List<ProductDTO> payload = toDtos(all, productRepository.findAllProductOrderIds());
 
             long total = all.size();
             HttpHeaders headers = new HttpHeaders();
@@ -100,12 +127,11 @@ public class ProductController implements ProductApi {
 
         // Spring Data is page/size; our API is offset/limit.
         int page = safeOffset / safeLimit;
-        PageRequest pr = PageRequest.of(page, safeLimit);
+        // two phases: the page of products with LIMIT/OFFSET, then the order ids for just those products
+        PageRequest pr = PageRequest.of(page, safeLimit, Sort.by("id"));
 
         Page<Product> pageData = productRepository.findAll(pr);
-        List<ProductDTO> items = pageData.getContent().stream()
-                .map(p -> mapper.toDto(p, productRepository.findOrderIdsByProductId(p.getId())))
-                .toList();
+        List<ProductDTO> items = toPageDtos(pageData.getContent());
 
         long total = pageData.getTotalElements();
 
@@ -119,4 +145,49 @@ public class ProductController implements ProductApi {
                 .body(items);
     }
 
+    // keyset page on the primary key: a deep page costs the same as the first one and the count is opt-in.
+    private ResponseEntity<List<ProductDTO>> getProductsAfter(String cursor, Integer limit, Boolean includeTotal) {
+        int pageSize = limit == null ? ResponseUtility.DEFAULT_LIMIT : Math.max(1, limit);
+        long afterId = CursorUtility.isFirstPage(cursor) ? 0L : CursorUtility.decodeId(cursor);
+        // read one extra row to find out whether there is a next page without a count query
+        List<Product> products = productRepository.findByIdGreaterThan(afterId, PageRequest.of(0, pageSize + 1, Sort.by("id")));
+
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            nextCursor = CursorUtility.encodeId(products.get(pageSize - 1).getId());
+        }
+        List<ProductDTO> items = toPageDtos(products);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (Boolean.TRUE.equals(includeTotal)) {
+            headers.add("X-Total-Count", String.valueOf(productRepository.count()));
+        }
+        headers.add(HttpHeaders.LINK, ResponseUtility.buildCursorLinkHeader(pageSize, nextCursor));
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(items);
+    }
+
+    // a page of products costs one extra query for all of its order ids, rather than one per product.
+    private List<ProductDTO> toPageDtos(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = products.stream().map(Product::getId).toList();
+        return toDtos(products, productRepository.findOrderIdsByProductIds(ids));
+    }
+
+    private List<ProductDTO> toDtos(List<Product> products, List<ProductOrderView> productOrders) {
+        Map<Long, List<Long>> orderIdsByProduct = productOrders.stream()
+                .collect(Collectors.groupingBy(
+                        ProductOrderView::getProductId,
+                        Collectors.mapping(ProductOrderView::getOrderId, Collectors.toList())
+                ));
+        return products.stream()
+                .map(p -> mapper.toDto(p, orderIdsByProduct.getOrDefault(p.getId(), List.of())))
+                .toList();
+    }
 }
@@ -0,0 +1,227 @@
+package com.example.store.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs two reads whose results are stitched together at the same time, each on its own connection, so the caller
+ * waits for the slower of the two round trips instead of their sum. Each read gets a read-only REPEATABLE READ
+ * transaction, the first on an executor thread and the second on the calling thread. With {@code exportSnapshot}
+ * (PostgreSQL) the first transaction exports its snapshot ({@code pg_export_snapshot()}) and the second imports it
+ * ({@code SET TRANSACTION SNAPSHOT}) before its query, so both see exactly the same committed state; the exporting
+ * transaction stays open until the import is done. Without it the two transactions merely start together and may see
+ * different commits.
+ * <p>
+ * The calling thread only opens its transaction once the snapshot has been exported, so it never holds a connection
+ * while the first read is still waiting for one.
+ * <p>
+ * Without an executor both reads run one after the other in a single read-only REPEATABLE READ transaction on the
+ * calling thread. That is also the fallback when the executor rejects the first read, when the snapshot is not
+ * exported within {@code snapshotTimeout}, or when the hand-over fails (for instance when the replica became
+ * unavailable between the two connections being routed, so they ended up on different servers). The first read is
+ * stopped, or waited for if it is already running, before the fallback starts.
+ * <p>
+ * The caller should not hold a transaction of its own: the reads would not see it, and its connection would sit idle
+ * while the reads run. The caller's replica pin (see {@link ReplicaRouting}) is carried to both reads.
+ */
+@Slf4j
+public class ParallelSnapshotReader {
+
+    private final TransactionTemplate transaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final boolean exportSnapshot;
+    private final Duration snapshotTimeout;
+
+    public ParallelSnapshotReader(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                                  Executor executor, boolean exportSnapshot, Duration snapshotTimeout) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setReadOnly(true);
+        this.transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.exportSnapshot = exportSnapshot;
+        this.snapshotTimeout = snapshotTimeout;
+    }
+
+    /** Both reads in one transaction on the calling thread. */
+    public static ParallelSnapshotReader sequential(PlatformTransactionManager transactionManager) {
+        return new ParallelSnapshotReader(transactionManager, null, null, false, Duration.ZERO);
+    }
+
+    /**
+     * Runs {@code first} and {@code second} against the same database state and combines their results on the calling
+     * thread. An exception thrown by either read is rethrown as is.
+     */
+    public <A, B, R> R read(Supplier<A> first, Supplier<B> second, BiFunction<? super A, ? super B, R> combine) {
+        if (executor == null) {
+            return readSequentially(first, second, combine);
+        }
+        try {
+            return readInParallel(first, second, combine);
+        } catch (SnapshotHandOverException e) {
+            log.warn("Parallel read with a shared snapshot not possible, reading sequentially: {}", e.getMessage());
+            return readSequentially(first, second, combine);
+        }
+    }
+
+    private <A, B, R> R readSequentially(Supplier<A> first, Supplier<B> second,
+                                         BiFunction<? super A, ? super B, R> combine) {
+        return transaction.execute(status -> combine.apply(first.get(), second.get()));
+    }
+
+    private <A, B, R> R readInParallel(Supplier<A> first, Supplier<B> second,
+                                       BiFunction<? super A, ? super B, R> combine) {
+        boolean onPrimary = ReplicaRouting.isPinnedToPrimary();
+        FirstRead<A> firstRead = new FirstRead<>();
+        try {
+            executor.execute(() -> firstRead.run(() -> routed(onPrimary, () -> transaction.execute(status -> {
+                String snapshot;
+                try {
+                    snapshot = exportSnapshot
+                            ? jdbcTemplate.queryForObject("select pg_export_snapshot()", String.class)
+                            : "";
+                } catch (RuntimeException e) {
+                    firstRead.exported.completeExceptionally(e);
+                    throw e;
+                }
+                firstRead.exported.complete(snapshot);
+                if (firstRead.abandoned) {
+                    return null;
+                }
+                try {
+                    return first.get();
+                } finally {
+                    // the snapshot can only be imported while this transaction is open
+                    await(firstRead.imported);
+                }
+            }))));
+        } catch (RejectedExecutionException e) {
+            throw new SnapshotHandOverException("no thread for the parallel read: " + e.getMessage(), e);
+        }
+
+        // wait for the snapshot before opening the importing transaction: a request thread holding a connection while
+        // its first read waits for one could drain the pool under a burst
+        String snapshot;
+        try {
+            snapshot = firstRead.exported.get(snapshotTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            firstRead.abandon();
+            throw new SnapshotHandOverException("interrupted waiting for the snapshot", e);
+        } catch (ExecutionException | TimeoutException e) {
+            firstRead.abandon();
+            throw new SnapshotHandOverException("export failed: " + e, e);
+        }
+
+        // the second read runs on the calling thread, which would only be waiting otherwise; with both on the executor
+        // a full queue could hold the second reads of requests whose first reads are holding the threads
+        B secondResult;
+        try {
+            secondResult = transaction.execute(status -> {
+                if (exportSnapshot) {
+                    try {
+                        jdbcTemplate.execute("set transaction snapshot '" + snapshot + "'");
+                    } catch (RuntimeException e) {
+                        throw new SnapshotHandOverException("import failed: " + e.getMessage(), e);
+                    }
+                }
+                firstRead.imported.complete(null);
+                return second.get();
+            });
+        } catch (SnapshotHandOverException e) {
+            firstRead.abandon();
+            throw e;
+        } finally {
+            // also when the transaction could not even start, so the first read does not wait for the timeout
+            firstRead.imported.complete(null);
+        }
+
+        try {
+            return combine.apply(firstRead.result.join(), secondResult);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void await(CompletableFuture<Void> imported) {
+        if (!exportSnapshot) {
+            return;
+        }
+        try {
+            imported.get(snapshotTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // the importing side reports the failure
+        }
+    }
+
+    /** The state shared between the first read on the executor and the caller waiting for its snapshot. */
+    private static final class FirstRead<A> {
+
+        final CompletableFuture<String> exported = new CompletableFuture<>();
+        final CompletableFuture<Void> imported = new CompletableFuture<>();
+        final CompletableFuture<A> result = new CompletableFuture<>();
+        // claimed by the read when it starts, or by the caller giving up on it before that
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile boolean abandoned;
+
+        void run(Supplier<A> read) {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(read.get());
+            } catch (Throwable e) {
+                // e.g. no connection: the caller is waiting for the snapshot
+                exported.completeExceptionally(e);
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Stops the read before the caller falls back to reading sequentially: a read that has not started yet never
+         * will, and one that has is waited for, so the two never hold connections side by side.
+         */
+        void abandon() {
+            abandoned = true;
+            imported.complete(null);
+            if (!claimed.compareAndSet(false, true)) {
+                result.handle((value, failure) -> null).join();
+            }
+        }
+    }
+
+    private static <T> T routed(boolean onPrimary, Supplier<T> work) {
+        return onPrimary ? ReplicaRouting.callOnPrimary(work) : work.get();
+    }
+
+    /** The two transactions could not share a snapshot; the reads are repeated sequentially. */
+    static class SnapshotHandOverException extends RuntimeException {
+        SnapshotHandOverException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.store.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks how far the read replica is behind the primary, using the per-table counters in change_version
+ * (db.changelog-6) rather than anything replication specific, so it works the same for a streaming replica, a logical
+ * subscriber or two H2 databases in a test.
+ * <p>
+ * Every check samples the primary's counters, then the replica's. The replica has everything the primary had at a
+ * sample time once its counters are at least as high as that sample's; the lag is the time since the newest sample it
+ * has caught up with. The replica is used while it is reachable and its lag is within {@code max-lag}. The replica
+ * counters of the last check are also what {@link #isCaughtUp(Map)} compares a request's snapshot tag against.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // samples the replica has not caught up with yet; bounded so an unreachable replica cannot grow it forever
+    private static final int MAX_SAMPLES = 1000;
+
+    private static final Duration NEVER = Duration.ofSeconds(Long.MAX_VALUE);
+
+    private static final String VERSIONS = "select table_name, version from public.change_version";
+
+    private record Sample(Instant at, Map<String, Long> versions) {}
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    private final Clock clock;
+
+    // guarded by lock, which is held across the two queries (a monitor would pin a virtual thread there)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Sample> pending = new ArrayDeque<>();
+
+    private volatile Map<String, Long> replicaVersions = Map.of();
+    private volatile Instant caughtUpAt;
+    private volatile boolean reachable;
+    private volatile boolean available;
+
+    public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, Duration maxLag, Clock clock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${store.datasource.replica.lag-check-interval:PT1S}")
+    public void check() {
+        lock.lock();
+        try {
+            try {
+                pending.addLast(new Sample(clock.instant(), versions(primary)));
+                if (pending.size() > MAX_SAMPLES) {
+                    pending.removeFirst();
+                }
+                Map<String, Long> current = versions(replica);
+                while (!pending.isEmpty() && covers(current, pending.peekFirst().versions())) {
+                    caughtUpAt = pending.removeFirst().at();
+                }
+                replicaVersions = current;
+                reachable = true;
+            } catch (DataAccessException e) {
+                if (reachable) {
+                    log.warn("Read replica check failed, reads go to the primary: {}", e.getMessage());
+                }
+                reachable = false;
+            }
+
+            boolean nowAvailable = reachable && lag().compareTo(maxLag) <= 0;
+            if (nowAvailable != available) {
+                log.info("Read replica {} (lag {})", nowAvailable ? "in use" : "bypassed", lag());
+            }
+            available = nowAvailable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether read-only transactions may go to the replica, as of the last check. */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /** Time since the newest primary state the replica is known to contain; unbounded until it caught up once. */
+    public Duration lag() {
+        Instant at = caughtUpAt;
+        return at == null ? NEVER : Duration.between(at, clock.instant());
+    }
+
+    /** {@link #lag()} in milliseconds for the lag gauge; NaN until the replica has caught up once. */
+    public double lagMillis() {
+        return caughtUpAt == null ? Double.NaN : lag().toMillis();
+    }
+
+    /**
+     * Whether the replica, as of the last check, has every change counted by {@code primaryVersions} (table name to
+     * change_version.version as just read from the primary).
+     */
+    public boolean isCaughtUp(Map<String, Long> primaryVersions) {
+        return covers(replicaVersions, primaryVersions);
+    }
+
+    private static boolean covers(Map<String, Long> replica, Map<String, Long> primary) {
+        for (Map.Entry<String, Long> table : primary.entrySet()) {
+            if (replica.getOrDefault(table.getKey(), Long.MIN_VALUE) < table.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Long> versions(JdbcTemplate jdbcTemplate) {
+        Map<String, Long> versions = new HashMap<>();
+        jdbcTemplate.query(VERSIONS, rs -> {
+            versions.put(rs.getString(1), rs.getLong(2));
+        });
+        return versions;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.store.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override of the replica routing. Read-only transactions go to the replica unless the current thread has
+ * been pinned to the primary, which happens when:
+ * - the snapshot tag of a request was read from the primary and the replica has not caught up with it yet (see
+ *   {@link com.example.store.service.SnapshotTagService}), so the body must not be older than its ETag
+ * - the work follows the primary's change stream (the order read model)
+ * A request's pin is cleared by {@link ReplicaRoutingFilter} when the request completes.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReplicaRouting() {}
+
+    /** Sends every read-only transaction started on this thread to the primary until {@link #clear()}. */
+    public static void pinToPrimary() {
+        PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PRIMARY.get() != null;
+    }
+
+    public static void clear() {
+        PRIMARY.remove();
+    }
+
+    /** Runs {@code work} pinned to the primary, then restores the previous state of this thread. */
+    public static <T> T callOnPrimary(Supplier<T> work) {
+        boolean pinned = isPinnedToPrimary();
+        pinToPrimary();
+        try {
+            return work.get();
+        } finally {
+            if (!pinned) {
+                clear();
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable work) {
+        callOnPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code work} pinned to the primary if {@code onPrimary} is set; used to carry a request's routing decision
+     * to work that completes on another thread (the NDJSON stream).
+     */
+    public static void run(boolean onPrimary, Runnable work) {
+        if (onPrimary) {
+            runOnPrimary(work);
+        } else {
+            work.run();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.store.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * The read-only side of the application DataSource: the replica while the {@link ReplicaLagMonitor} reports it
+ * available and the current thread is not pinned to the primary (see {@link ReplicaRouting}), the primary otherwise.
+ * Only used for connections of read-only transactions, see {@link com.example.store.config.ReplicaDataSourceConfig}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor monitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor monitor) {
+        this.monitor = monitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ReplicaRouting.isPinnedToPrimary() || !monitor.isAvailable() ? Target.PRIMARY : Target.REPLICA;
+    }
+}
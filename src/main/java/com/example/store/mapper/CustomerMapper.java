@@ -1,8 +1,11 @@
 package com.example.store.mapper;
 
+import com.example.store.api.dto.CustomerOrdersInnerDTO;
 import com.example.store.entity.Customer;
 import com.example.store.api.dto.CustomerDTO;
 
+import com.example.store.repository.projection.CustomerNameView;
+import com.example.store.repository.projection.CustomerOrderView;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -16,4 +19,15 @@ public interface CustomerMapper {
 
     @Mapping(target = "id", ignore = true)
     Customer toEntity(CustomerDTO customerDTO);
+
+    // The read path: the orders are passed in (loaded in bulk as projections), the lazy Customer.orders is never read.
+    @Mapping(target = "orders", source = "orderSummaries")
+    CustomerDTO toDto(Customer customer, List<CustomerOrdersInnerDTO> orderSummaries);
+
+    @Mapping(target = "orders", source = "orderSummaries")
+    CustomerDTO toDto(CustomerNameView customer, List<CustomerOrdersInnerDTO> orderSummaries);
+
+    @Mapping(target = "id", source = "orderId")
+    @Mapping(target = "description", source = "orderDescription")
+    CustomerOrdersInnerDTO toOrderSummaryDto(CustomerOrderView row);
 }
@@ -4,6 +4,8 @@ import com.example.store.api.dto.ProductCreateDTO;
 import com.example.store.api.dto.ProductDTO;
 import com.example.store.entity.Product;
 import com.example.store.entity.Order;
+import com.example.store.repository.projection.ProductDetailRow;
+import org.hibernate.Hibernate;
 import org.mapstruct.*;
 
 import java.util.ArrayList;
@@ -26,11 +28,30 @@ public interface ProductMapper {
     @Mapping(target = "orders", source = "orderIds")
     ProductDTO toDto(Product product, List<Long> orderIds);
 
-    // Overload to map using entity's orders if they are loaded (fallback).
+    /** Row → DTO for the product detail query; no entity or orders collection is involved. */
+    @Mapping(target = "orders", source = "orderIds")
+    ProductDTO toDto(ProductDetailRow row, List<Long> orderIds);
+
+    /** Folds the rows of ProductRepository#findDetailRows (one per order) into one DTO; null when there are none. */
+    default ProductDTO detailRowsToDto(List<ProductDetailRow> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        List<Long> orderIds = new ArrayList<>(rows.size());
+        for (ProductDetailRow row : rows) {
+            if (row.getOrderId() != null) {
+                orderIds.add(row.getOrderId());
+            }
+        }
+        return toDto(rows.get(0), orderIds);
+    }
+
+    // Overload to map using entity's orders if they are loaded (fallback). An uninitialized lazy collection is
+    // never touched - that would cost a query per product.
     @AfterMapping
     default void fillOrdersIfMissing(Product src, @MappingTarget ProductDTO dst, List<Long> orderIdsCtx) {
         if (dst.getOrders() == null || dst.getOrders().isEmpty()) {
-            if (src.getOrders() != null && !src.getOrders().isEmpty()) {
+            if (src.getOrders() != null && Hibernate.isInitialized(src.getOrders()) && !src.getOrders().isEmpty()) {
                 List<Long> ids = new ArrayList<>(src.getOrders().size());
                 for (Order o : src.getOrders()) {
                     if (o != null && o.getId() != null) {
@@ -0,0 +1,169 @@
+package com.example.store.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the JDBC work of the application DataSource (see {@link com.example.store.config.MetricsConfig}):
+ * - store.jdbc.statements{type=query|update|batch|execute} - statement executions, i.e. database round trips (a
+ *   result set read with a fetch size takes one more round trip per fetch, which is not counted)
+ * - store.jdbc.rows - rows read from result sets
+ * Connections, statements and result sets are wrapped in JDK proxies; the rows of a result set are tallied locally and
+ * added once it is exhausted or closed.
+ */
+public class MeteredDataSource extends DelegatingDataSource implements MeterBinder {
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder executes = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    public MeteredDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        statements(registry, "query", queries);
+        statements(registry, "update", updates);
+        statements(registry, "batch", batches);
+        statements(registry, "execute", executes);
+        FunctionCounter.builder("store.jdbc.rows", rows, LongAdder::sum)
+                .baseUnit("rows")
+                .description("Rows read from JDBC result sets")
+                .register(registry);
+    }
+
+    private static void statements(MeterRegistry registry, String type, LongAdder count) {
+        FunctionCounter.builder("store.jdbc.statements", count, LongAdder::sum)
+                .tag("type", type)
+                .description("JDBC statement executions (database round trips)")
+                .register(registry);
+    }
+
+    private Connection connection(Connection target) {
+        Connection[] self = new Connection[1];
+        self[0] = proxy(Connection.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                return statement(method.getReturnType(), statement, self[0]);
+            }
+            return result;
+        });
+        return self[0];
+    }
+
+    // statements and result sets hand out the proxies they came from, so code walking back through
+    // getConnection() / getStatement() stays metered and sees the same identities
+    private Statement statement(Class<?> type, Statement target, Connection connection) {
+        Class<? extends Statement> api = CallableStatement.class.isAssignableFrom(type) ? CallableStatement.class
+                : PreparedStatement.class.isAssignableFrom(type) ? PreparedStatement.class
+                : Statement.class;
+        Statement[] self = new Statement[1];
+        self[0] = proxy(api, target, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery" -> queries.increment();
+                case "executeUpdate", "executeLargeUpdate" -> updates.increment();
+                case "executeBatch", "executeLargeBatch" -> batches.increment();
+                case "execute" -> executes.increment();
+                case "getConnection" -> {
+                    return connection;
+                }
+                default -> { }
+            }
+            Object result = invoke(target, method, args);
+            if (result instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, resultSet, new RowCounter(resultSet, self[0]));
+            }
+            return result;
+        });
+        return self[0];
+    }
+
+    private final class RowCounter implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Statement statement;
+        private long read;
+
+        RowCounter(ResultSet target, Statement statement) {
+            this.target = target;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                boolean next = (Boolean) MeteredDataSource.invoke(target, method, args);
+                if (next) {
+                    read++;
+                } else {
+                    flush();
+                }
+                return next;
+            }
+            if (name.equals("getStatement")) {
+                // null for result sets a statement did not produce, e.g. generated keys on some drivers
+                return target.getStatement() == null ? null : statement;
+            }
+            if (name.equals("close")) {
+                flush();
+            }
+            return MeteredDataSource.invoke(target, method, args);
+        }
+
+        private void flush() {
+            if (read > 0) {
+                rows.add(read);
+                read = 0;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> api, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(), new Class<?>[] {api},
+                (proxy, method, args) -> switch (method.getName()) {
+                    // identity for the proxy itself, e.g. when Spring keys a ConnectionHolder by it
+                    case "equals" -> args[0] == proxy;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Metered " + target;
+                    default -> handler.invoke(proxy, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
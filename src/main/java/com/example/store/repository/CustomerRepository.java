@@ -1,17 +1,137 @@
 package com.example.store.repository;
 
 import com.example.store.entity.Customer;
+import com.example.store.repository.projection.CustomerDetailRow;
+import com.example.store.repository.projection.CustomerNameView;
+import com.example.store.repository.projection.CustomerOrderView;
+import jakarta.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
+@Transactional(readOnly = true)
 public interface CustomerRepository extends PagingAndSortingRepository<Customer, Long>, JpaRepository<Customer, Long> {
 
     List<Customer> findByNameIgnoreCaseContaining(String name);
 
     Page<Customer> findByNameIgnoreCaseContaining(String name, Pageable pageable);
+
+    long countByNameIgnoreCaseContaining(String name);
+
+    /** Keyset page on the primary key; the pageable supplies the page size and the id sort. */
+    List<Customer> findByIdGreaterThan(Long id, Pageable pageable);
+
+    List<Customer> findByNameIgnoreCaseContainingAndIdGreaterThan(String name, Long id, Pageable pageable);
+
+    // Pattern based search, see CustomerSearchService. Both patterns are upper case LIKE patterns escaped with '\';
+    // a name matches either of them. upper(name) is what idx_customer_name_trgm indexes on Postgres.
+
+    @Query("""
+      select c from Customer c
+      where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+    """)
+    List<Customer> findByNamePatterns(@Param("pattern") String pattern, @Param("wordPattern") String wordPattern, Sort sort);
+
+    @Query(value = """
+      select c from Customer c
+      where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+    """,
+            countQuery = """
+      select count(c) from Customer c
+      where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+    """)
+    Page<Customer> findByNamePatterns(@Param("pattern") String pattern, @Param("wordPattern") String wordPattern,
+                                      Pageable pageable);
+
+    @Query("""
+      select count(c) from Customer c
+      where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+    """)
+    long countByNamePatterns(@Param("pattern") String pattern, @Param("wordPattern") String wordPattern);
+
+    @Query("""
+      select c from Customer c
+      where (upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\')
+        and c.id > :afterId
+    """)
+    List<Customer> findByNamePatternsAfter(@Param("pattern") String pattern, @Param("wordPattern") String wordPattern,
+                                           @Param("afterId") Long afterId, Pageable pageable);
+
+    /** Postgres only: pattern search served by the trigram index, best matches (pg_trgm similarity) first. */
+    @Query(value = """
+        select c.* from public.customer c
+        where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+        order by similarity(c.name, :name) desc, c.id
+      """,
+            countQuery = """
+        select count(*) from public.customer c
+        where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+      """,
+            nativeQuery = true)
+    Page<Customer> searchRanked(@Param("name") String name, @Param("pattern") String pattern,
+                                @Param("wordPattern") String wordPattern, Pageable pageable);
+
+    /** Postgres only: unpaged variant of {@link #searchRanked(String, String, String, Pageable)}. */
+    @Query(value = """
+        select c.* from public.customer c
+        where upper(c.name) like :pattern escape '\\' or upper(c.name) like :wordPattern escape '\\'
+        order by similarity(c.name, :name) desc, c.id
+      """,
+            nativeQuery = true)
+    List<Customer> searchRanked(@Param("name") String name, @Param("pattern") String pattern,
+                                @Param("wordPattern") String wordPattern);
+
+    /** Orders (id and description) of the given customers in one query, instead of a lazy load per customer. */
+    @Query("""
+      select o.customer.id as customerId,
+             o.id as orderId,
+             o.description as orderDescription
+      from Order o
+      where o.customer.id in (:customerIds)
+      order by o.customer.id asc, o.id asc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<CustomerOrderView> findOrdersByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    /** Orders (id and description) of every customer, for the fetch-all path. */
+    @Query("""
+      select o.customer.id as customerId,
+             o.id as orderId,
+             o.description as orderDescription
+      from Order o
+      order by o.customer.id asc, o.id asc
+    """)
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    List<CustomerOrderView> findAllCustomerOrders();
+
+    /** A customer and its orders in one statement (GET /customer/{id}), one row per order. */
+    @Query("""
+      select c.id as id,
+             c.name as name,
+             c.id as customerId,
+             o.id as orderId,
+             o.description as orderDescription
+      from Customer c left join c.orders o
+      where c.id = :id
+      order by o.id asc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<CustomerDetailRow> findDetailRows(@Param("id") Long id);
+
+    /** Every customer id and name in id order; the input of CustomerSearchIndex. */
+    @Query("select c.id as id, c.name as name from Customer c order by c.id")
+    List<CustomerNameView> findAllNames();
 }
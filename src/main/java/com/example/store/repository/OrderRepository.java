@@ -2,16 +2,26 @@ package com.example.store.repository;
 
 import com.example.store.entity.Order;
 
+import com.example.store.repository.projection.OrderDetailRow;
+import com.example.store.repository.projection.OrderPageRow;
 import com.example.store.repository.projection.OrderRow;
 import com.example.store.repository.projection.ProductSummaryView;
 import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+@Transactional(readOnly = true)
 public interface OrderRepository extends PagingAndSortingRepository<Order, Long>, JpaRepository<Order, Long> {
     @Query("""
       select o.id as id,
@@ -43,4 +53,133 @@ public interface OrderRepository extends PagingAndSortingRepository<Order, Long>
             @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
     })
     List<ProductSummaryView> findAllOrderProducts();
+
+    /**
+     * Streaming variant of {@link #findAllRows()} ordered by id so it can be merge-joined with
+     * {@link #streamAllOrderProducts()}. Must be consumed inside a read-only transaction and closed afterwards.
+     */
+    @Query("""
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName
+      from Order o join o.customer c
+      order by o.id asc
+    """)
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<OrderRow> streamAllRows();
+
+    /** Streaming variant of {@link #findAllOrderProducts()}; ordered by order id to match {@link #streamAllRows()}. */
+    @Query(
+            value = """
+        select op.order_id   as orderId,
+               op.product_id as productId,
+               p.description as productDescription
+        from public.order_product op
+        join public.product p on p.id = op.product_id
+        order by op.order_id asc, op.product_id asc
+      """,
+            nativeQuery = true
+    )
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ProductSummaryView> streamAllOrderProducts();
+
+    /** Offset page of lean order rows; products are fetched separately for just this page's ids. */
+    @Query(value = """
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName,
+             o.createdAt as createdAt
+      from Order o join o.customer c
+      order by o.createdAt desc, o.id desc
+    """,
+            countQuery = "select count(o) from Order o")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    Page<OrderPageRow> findPageRows(Pageable pageable);
+
+    /** First keyset page, in the order of idx_order_created_at_id. Only the page size of the pageable is used. */
+    @Query("""
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName,
+             o.createdAt as createdAt
+      from Order o join o.customer c
+      order by o.createdAt desc, o.id desc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<OrderPageRow> findFirstPage(Pageable pageable);
+
+    /** Keyset page after the given (createdAt, id); the row value comparison seeks on idx_order_created_at_id. */
+    @Query("""
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName,
+             o.createdAt as createdAt
+      from Order o join o.customer c
+      where (o.createdAt, o.id) < (:createdAt, :id)
+      order by o.createdAt desc, o.id desc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<OrderPageRow> findPageAfter(@Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable pageable);
+
+    /** Product summaries for a page of orders only (uses idx_order_product_order). */
+    @Query(
+            value = """
+        select op.order_id   as orderId,
+               op.product_id as productId,
+               p.description as productDescription
+        from public.order_product op
+        join public.product p on p.id = op.product_id
+        where op.order_id in (:orderIds)
+        order by op.order_id asc, op.product_id asc
+      """,
+            nativeQuery = true
+    )
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<ProductSummaryView> findOrderProductsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /** Order rows (with their sort key) for the given ids; used to refresh individual orders of the read model. */
+    @Query("""
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName,
+             o.createdAt as createdAt
+      from Order o join o.customer c
+      where o.id in (:ids)
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<OrderPageRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * One order with its customer and products in a single statement (GET /order/{id}). The product join repeats the
+     * order columns once per product; OrderQueryService folds the rows back into one OrderDTO.
+     */
+    @Query("""
+      select o.id as id,
+             o.description as description,
+             c.id as customerId,
+             c.name as customerName,
+             o.id as orderId,
+             p.id as productId,
+             p.description as productDescription
+      from Order o join o.customer c left join o.products p
+      where o.id = :id
+      order by p.id asc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<OrderDetailRow> findDetailRows(@Param("id") Long id);
+
+    /** Every order id; lets the read model find orders deleted behind a change feed that cannot see deletes. */
+    @Query("select o.id from Order o")
+    List<Long> findAllIds();
 }
@@ -2,38 +2,81 @@ package com.example.store.repository;
 
 
 import com.example.store.entity.Product;
+import com.example.store.repository.projection.ProductDetailRow;
+import com.example.store.repository.projection.ProductOrderView;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ProductRepository extends
         PagingAndSortingRepository<Product, Long>,
         JpaRepository<Product, Long> {
 
-    /** Load a single product with its orders (avoids N+1). */
-    @EntityGraph(attributePaths = "orders")
-    Optional<Product> findWithOrdersById(Long id);
-
-    /** Page through products with orders pre-fetched. */
-    @EntityGraph(attributePaths = "orders")
+    /**
+     * Page through products. Deliberately no collection fetch of orders here: combined with pagination that makes
+     * Hibernate load every product/order pair and paginate in memory (HHH000104). The page is selected with a real
+     * LIMIT/OFFSET and the order ids are fetched for just that page with {@link #findOrderIdsByProductIds}. The page
+     * and its count are query cached.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_CACHEABLE, value = "true"))
     Page<Product> findAll(Pageable pageable);
 
-    /** Fetch all products with orders pre-fetched. */
-    @EntityGraph(attributePaths = "orders")
+    /** Every product (GET /products without a limit); the result is kept in the query cache until product changes. */
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Product> findAll();
 
-    /** IDs of orders that contain the given product. */
-    @Query("select o.id from Order o join o.products p where p.id = :productId")
-    List<Long> findOrderIdsByProductId(@Param("productId") Long productId);
+    /** Keyset page on the primary key; the pageable supplies the page size and the id sort. */
+    List<Product> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /** A product and the ids of the orders containing it in one statement (GET /products/{id}), one row per order. */
+    @Query("""
+      select p.id as id,
+             p.description as description,
+             o.id as orderId
+      from Product p left join p.orders o
+      where p.id = :id
+      order by o.id asc
+    """)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<ProductDetailRow> findDetailRows(@Param("id") Long id);
+
+    /** (product id, order id) pairs for the given products in one query, instead of one query per product. */
+    @Query(
+            value = """
+        select op.product_id as productId,
+               op.order_id   as orderId
+        from public.order_product op
+        where op.product_id in (:productIds)
+        order by op.product_id asc, op.order_id asc
+      """,
+            nativeQuery = true
+    )
+    List<ProductOrderView> findOrderIdsByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    /** (product id, order id) pairs for every product, for the fetch-all path. */
+    @Query(
+            value = """
+        select op.product_id as productId,
+               op.order_id   as orderId
+        from public.order_product op
+        order by op.product_id asc, op.order_id asc
+      """,
+            nativeQuery = true
+    )
+    List<ProductOrderView> findAllProductOrderIds();
 
     /** All products contained in a specific order (useful for /orders/{id}). */
     @Query("select p from Order o join o.products p where o.id = :orderId")
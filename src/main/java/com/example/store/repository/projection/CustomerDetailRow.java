@@ -0,0 +1,8 @@
+package com.example.store.repository.projection;
+
+/**
+ * Flat row of the single statement customer detail query: the customer columns repeated once per order, or a single
+ * row with null order columns when the customer has no orders.
+ */
+public interface CustomerDetailRow extends CustomerNameView, CustomerOrderView {
+}
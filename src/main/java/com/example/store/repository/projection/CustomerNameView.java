@@ -0,0 +1,9 @@
+package com.example.store.repository.projection;
+
+/**
+ * Just the searchable part of a customer, used to build the in-memory customer search index.
+ */
+public interface CustomerNameView {
+    Long getId();
+    String getName();
+}
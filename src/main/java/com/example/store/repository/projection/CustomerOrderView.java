@@ -0,0 +1,10 @@
+package com.example.store.repository.projection;
+
+/**
+ * One order of a customer (its id and description only), used to build the order lists of customers in bulk.
+ */
+public interface CustomerOrderView {
+    Long getCustomerId();
+    Long getOrderId();
+    String getOrderDescription();
+}
@@ -0,0 +1,8 @@
+package com.example.store.repository.projection;
+
+/**
+ * Flat row of the single statement order detail query: the order and customer columns repeated once per product, or a
+ * single row with null product columns when the order has no products.
+ */
+public interface OrderDetailRow extends OrderRow, ProductSummaryView {
+}
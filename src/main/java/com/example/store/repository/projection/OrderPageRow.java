@@ -0,0 +1,10 @@
+package com.example.store.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * Order projection used by the paged order queries. Adds the sort key needed to build the next keyset cursor.
+ */
+public interface OrderPageRow extends OrderRow {
+    Instant getCreatedAt();
+}
@@ -0,0 +1,11 @@
+package com.example.store.repository.projection;
+
+/**
+ * Flat row of the single statement product detail query: the product columns repeated once per order containing it,
+ * or a single row with a null order id when no order does.
+ */
+public interface ProductDetailRow {
+    Long getId();
+    String getDescription();
+    Long getOrderId();
+}
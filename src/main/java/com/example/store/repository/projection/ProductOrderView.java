@@ -0,0 +1,9 @@
+package com.example.store.repository.projection;
+
+/**
+ * One (product, order) pair from the order_product join table, used to build the order id lists of products in bulk.
+ */
+public interface ProductOrderView {
+    Long getProductId();
+    Long getOrderId();
+}
@@ -0,0 +1,215 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.CustomerDTO;
+import com.example.store.api.dto.CustomerOrdersInnerDTO;
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductCreateDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.config.CacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inserts orders, customers and products in bulk with plain JDBC.
+ * <p>
+ * The payload is consumed in chunks of {@code store.bulk.batch-size}. For every chunk the ids come from the table's
+ * sequence in one round trip ({@code nextval} over {@code generate_series}), and the rows go out as one JDBC batch
+ * per table (which pgjdbc rewrites into multi-row INSERTs with reWriteBatchedInserts=true). Entities and the
+ * persistence context are bypassed entirely, so the Hibernate query cache is cleared after a product import, and
+ * imported customers are added to the in-memory {@link CustomerSearchIndex} (when enabled) after commit. Each call is
+ * one transaction: either every row of the payload is created or none is.
+ */
+@Slf4j
+@Service
+public class BulkInsertService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    // only present with store.customer-search.in-memory.enabled=true
+    private final ObjectProvider<CustomerSearchIndex> customerSearchIndex;
+    private final int batchSize;
+    private final Map<String, Long> increments = new ConcurrentHashMap<>();
+
+    public BulkInsertService(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                             ObjectProvider<CustomerSearchIndex> customerSearchIndex,
+                             @Value("${store.bulk.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.customerSearchIndex = customerSearchIndex;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** Creates the orders and their product links; returns the new order ids in payload order. */
+    @Transactional
+    @CacheEvict(cacheNames = {CacheConfig.PRODUCTS, CacheConfig.CUSTOMERS}, allEntries = true)
+    public List<Long> insertOrders(Iterator<OrderDTO> orders) {
+        List<Long> created = new ArrayList<>();
+        List<OrderDTO> chunk = new ArrayList<>(batchSize);
+        while (next(orders, chunk)) {
+            for (OrderDTO order : chunk) {
+                if (order.getCustomer() == null || order.getCustomer().getId() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every order needs customer.id");
+                }
+            }
+            List<Long> ids = allocate("order_id_seq", chunk.size());
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                OrderDTO order = chunk.get(i);
+                rows.add(new Object[] {ids.get(i), order.getDescription(), order.getCustomer().getId()});
+            }
+            jdbcTemplate.batchUpdate("insert into public.\"order\" (id, description, customer_id) values (?, ?, ?)", rows);
+            insertOrderProducts(chunk, ids);
+            created.addAll(ids);
+        }
+        log.debug("Bulk inserted {} orders", created.size());
+        return created;
+    }
+
+    /** Creates the customers and their nested orders; returns the new customer ids in payload order. */
+    @Transactional
+    public List<Long> insertCustomers(Iterator<CustomerDTO> customers) {
+        CustomerSearchIndex index = customerSearchIndex.getIfAvailable();
+        List<Long> created = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<CustomerDTO> chunk = new ArrayList<>(batchSize);
+        while (next(customers, chunk)) {
+            List<Long> ids = allocate("customer_id_seq", chunk.size());
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            List<Object[]> orderRows = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                CustomerDTO customer = chunk.get(i);
+                rows.add(new Object[] {ids.get(i), customer.getName()});
+                if (index != null) {
+                    names.add(customer.getName());
+                }
+                if (customer.getOrders() != null) {
+                    for (CustomerOrdersInnerDTO order : customer.getOrders()) {
+                        orderRows.add(new Object[] {null, order.getDescription(), ids.get(i)});
+                    }
+                }
+            }
+            jdbcTemplate.batchUpdate("insert into public.customer (id, name) values (?, ?)", rows);
+            if (!orderRows.isEmpty()) {
+                List<Long> orderIds = allocate("order_id_seq", orderRows.size());
+                for (int i = 0; i < orderRows.size(); i++) {
+                    orderRows.get(i)[0] = orderIds.get(i);
+                }
+                jdbcTemplate.batchUpdate(
+                        "insert into public.\"order\" (id, description, customer_id) values (?, ?, ?)", orderRows);
+            }
+            created.addAll(ids);
+        }
+        if (index != null) {
+            // the search index is only fed by the entity save path otherwise: add the names once they are visible
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (int i = 0; i < created.size(); i++) {
+                        index.add(created.get(i), names.get(i));
+                    }
+                }
+            });
+        }
+        log.debug("Bulk inserted {} customers", created.size());
+        return created;
+    }
+
+    /** Creates the products; returns the new product ids in payload order. */
+    @Transactional
+    public List<Long> insertProducts(Iterator<ProductCreateDTO> products) {
+        List<Long> created = new ArrayList<>();
+        List<ProductCreateDTO> chunk = new ArrayList<>(batchSize);
+        while (next(products, chunk)) {
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            List<Long> ids = allocate("product_id_seq", chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                String description = chunk.get(i).getDescription();
+                if (description == null || description.isBlank()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every product needs a description");
+                }
+                rows.add(new Object[] {ids.get(i), description});
+            }
+            jdbcTemplate.batchUpdate("insert into public.product (id, description) values (?, ?)", rows);
+            created.addAll(ids);
+        }
+        // Hibernate does not see these inserts: drop the cached product lists once they are visible
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            }
+        });
+        log.debug("Bulk inserted {} products", created.size());
+        return created;
+    }
+
+    private void insertOrderProducts(List<OrderDTO> orders, List<Long> ids) {
+        List<Object[]> links = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            List<ProductSummaryDTO> products = orders.get(i).getProducts();
+            if (products == null) {
+                continue;
+            }
+            for (ProductSummaryDTO product : products) {
+                links.add(new Object[] {ids.get(i), product.getId()});
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "insert into public.order_product (order_id, product_id) values (?, ?) on conflict do nothing",
+                    links);
+        }
+    }
+
+    /**
+     * Reserves {@code count} ids from a sequence in one round trip. The sequences are shared with the entities'
+     * pooled-lo generators, so every nextval stands for the block [value, value + increment) and is used that way here
+     * too: a chunk of 1000 rows with an increment of 50 takes 20 values.
+     */
+    private List<Long> allocate(String sequence, int count) {
+        long increment = increments.computeIfAbsent(sequence, this::increment);
+        int blocks = (int) ((count + increment - 1) / increment);
+        List<Long> lows = jdbcTemplate.queryForList(
+                "select nextval('public." + sequence + "') from generate_series(1, ?)", Long.class, blocks);
+        List<Long> ids = new ArrayList<>(count);
+        for (Long low : lows) {
+            for (long id = low; id < low + increment && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private long increment(String sequence) {
+        Long increment = jdbcTemplate.queryForObject(
+                "select increment from information_schema.sequences where sequence_schema = 'public' and sequence_name = ?",
+                Long.class, sequence);
+        return increment == null || increment < 1 ? 1 : increment;
+    }
+
+    // refills the chunk from the source; false once the source is exhausted
+    private <T> boolean next(Iterator<T> source, List<T> chunk) {
+        chunk.clear();
+        while (chunk.size() < batchSize && source.hasNext()) {
+            chunk.add(source.next());
+        }
+        return !chunk.isEmpty();
+    }
+}
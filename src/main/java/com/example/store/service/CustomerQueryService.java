@@ -0,0 +1,90 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.CustomerDTO;
+import com.example.store.api.dto.CustomerOrdersInnerDTO;
+import com.example.store.config.CacheConfig;
+import com.example.store.entity.Customer;
+import com.example.store.mapper.CustomerMapper;
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.projection.CustomerDetailRow;
+import com.example.store.repository.projection.CustomerOrderView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Read side of the customer endpoints. The customers come from whichever query selected them (list, keyset page,
+ * search); their orders are then loaded for all of them at once as (customer id, order id, description) projections
+ * and stitched in, so the lazy Customer.orders collection is never initialised. The cached detail DTOs are shared
+ * between requests and must not be modified by callers.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CustomerQueryService {
+
+    // keeps the IN lists of the order query at a size every database handles comfortably
+    private static final int ID_CHUNK = 500;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+
+    /** Every customer with its orders in two queries. */
+    public List<CustomerDTO> findAllCustomersWithOrders() {
+        List<Customer> customers = customerRepository.findAll();
+        if (customers.isEmpty()) return List.of();
+
+        return stitch(customers, customerRepository.findAllCustomerOrders());
+    }
+
+    /** Attaches the orders to already loaded customers with a query restricted to their ids. */
+    public List<CustomerDTO> withOrders(List<Customer> customers) {
+        if (customers.isEmpty()) return List.of();
+
+        List<Long> ids = customers.stream().map(Customer::getId).toList();
+        List<CustomerOrderView> orders = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += ID_CHUNK) {
+            orders.addAll(customerRepository.findOrdersByCustomerIds(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK))));
+        }
+        return stitch(customers, orders);
+    }
+
+    /** One customer and its orders in a single statement; cached, see {@link CacheConfig#CUSTOMERS}. */
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS, unless = "#result == null")
+    public Optional<CustomerDTO> findCustomerById(Long id) {
+        List<CustomerDetailRow> rows = customerRepository.findDetailRows(id);
+        if (rows.isEmpty()) return Optional.empty();
+
+        List<CustomerOrdersInnerDTO> orders = new ArrayList<>(rows.size());
+        for (CustomerDetailRow row : rows) {
+            if (row.getOrderId() != null) {
+                orders.add(customerMapper.toOrderSummaryDto(row));
+            }
+        }
+        return Optional.of(customerMapper.toDto(rows.get(0), orders));
+    }
+
+    /** Drops the cached detail of a customer whose orders changed. */
+    @CacheEvict(cacheNames = CacheConfig.CUSTOMERS, key = "#customerId")
+    public void evict(Long customerId) {
+        // the annotation does the work
+    }
+
+    private List<CustomerDTO> stitch(List<Customer> customers, List<CustomerOrderView> orders) {
+        Map<Long, List<CustomerOrdersInnerDTO>> ordersByCustomer = new HashMap<>();
+        for (CustomerOrderView order : orders) {
+            ordersByCustomer.computeIfAbsent(order.getCustomerId(), k -> new ArrayList<>())
+                    .add(customerMapper.toOrderSummaryDto(order));
+        }
+
+        List<CustomerDTO> result = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            result.add(customerMapper.toDto(customer, ordersByCustomer.getOrDefault(customer.getId(), new ArrayList<>())));
+        }
+        return result;
+    }
+}
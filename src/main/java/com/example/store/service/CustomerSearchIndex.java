@@ -0,0 +1,246 @@
+package com.example.store.service;
+
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.projection.CustomerNameView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process trigram index over customer names, so /customer/search does not need a database round trip to find and
+ * count the matches (CustomerSearchService still loads the page of customers it returns by primary key).
+ * <p>
+ * Every customer is kept as (id, upper case name); each trigram of a name points at the positions of the names that
+ * contain it. A term of three or more characters only verifies the names in the intersection of its trigrams' posting
+ * lists; shorter terms scan the names. Results are in id order. Enabled with
+ * {@code store.customer-search.in-memory.enabled=true}; built when the application is ready and updated by
+ * {@link #add(long, String)} when a customer is created.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "store.customer-search.in-memory", name = "enabled", havingValue = "true")
+public class CustomerSearchIndex {
+
+    /** A page of matching customer ids and the total number of matches. */
+    public record Result(List<Long> ids, long total) {}
+
+    private final CustomerRepository customerRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private long[] ids = new long[0];
+    private String[] names = new String[0];
+    private int size;
+    private boolean inIdOrder = true;
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private volatile boolean ready;
+
+    public CustomerSearchIndex(CustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        load(customerRepository.findAllNames());
+        log.info("Customer search index built: {} customers, {} trigrams, ~{} KiB",
+                size(), trigramCount(), estimatedFootprintBytes() / 1024);
+    }
+
+    /** Replaces the content of the index. */
+    void load(Collection<? extends CustomerNameView> customers) {
+        lock.writeLock().lock();
+        try {
+            ids = new long[Math.max(16, customers.size())];
+            names = new String[ids.length];
+            size = 0;
+            inIdOrder = true;
+            trigrams.clear();
+            for (CustomerNameView customer : customers) {
+                append(customer.getId(), customer.getName());
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(long id, String name) {
+        lock.writeLock().lock();
+        try {
+            append(id, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Matches in id order, skipping {@code offset}; {@code limit <= 0} returns all of them. */
+    public Result search(String term, CustomerSearchService.Mode mode, long offset, int limit) {
+        List<Long> matches = matches(term, mode);
+        int from = (int) Math.min(matches.size(), Math.max(0, offset));
+        int to = limit <= 0 ? matches.size() : (int) Math.min(matches.size(), (long) from + limit);
+        return new Result(List.copyOf(matches.subList(from, to)), matches.size());
+    }
+
+    /** Keyset variant: the first {@code limit} matches with an id greater than {@code afterId}. */
+    public Result searchAfter(String term, CustomerSearchService.Mode mode, long afterId, int limit) {
+        List<Long> matches = matches(term, mode);
+        int from = Collections.binarySearch(matches, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min(matches.size(), (long) from + Math.max(1, limit));
+        return new Result(List.copyOf(matches.subList(from, to)), matches.size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return trigrams.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough retained size in bytes, assuming compressed oops and Latin-1 compact strings: the id and name arrays, the
+     * names, and per trigram a hash map node, its Long key and its posting list.
+     */
+    public long estimatedFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 16 + 8L * ids.length + 16 + 4L * names.length;
+            for (int i = 0; i < size; i++) {
+                bytes += 24 + 16 + names[i].length();
+            }
+            bytes += 16 + 4L * Integer.highestOneBit(Math.max(1, trigrams.size()) * 2); // hash map table
+            for (Postings postings : trigrams.values()) {
+                bytes += 32 + 16 + 24 + 16 + 4L * postings.positions.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> matches(String term, CustomerSearchService.Mode mode) {
+        String upper = term.toUpperCase(Locale.ROOT);
+        String wordStart = " " + upper;
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(upper);
+            int count = candidates == null ? size : candidates.length;
+            for (int i = 0; i < count; i++) {
+                int position = candidates == null ? i : candidates[i];
+                String name = names[position];
+                boolean match = mode == CustomerSearchService.Mode.PREFIX
+                        ? name.startsWith(upper) || name.contains(wordStart)
+                        : name.contains(upper);
+                if (match) {
+                    result.add(ids[position]);
+                }
+            }
+            if (!inIdOrder) {
+                Collections.sort(result);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // positions containing every trigram of the term, or null when the term is too short to use the index
+    private int[] candidates(String upper) {
+        if (upper.length() < 3) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= upper.length(); i++) {
+            Postings postings = trigrams.get(trigram(upper, i));
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+        int[] result = Arrays.copyOf(lists.get(0).positions, lists.get(0).size);
+        for (int l = 1; l < lists.size() && result.length > 0; l++) {
+            result = intersect(result, lists.get(l));
+        }
+        return result;
+    }
+
+    private void append(long id, String name) {
+        String upper = name == null ? "" : name.toUpperCase(Locale.ROOT);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+            names = Arrays.copyOf(names, ids.length);
+        }
+        if (size > 0 && id < ids[size - 1]) {
+            inIdOrder = false; // creates can commit out of id order; matches are sorted when that happened
+        }
+        int position = size++;
+        ids[position] = id;
+        names[position] = upper;
+        for (int i = 0; i + 3 <= upper.length(); i++) {
+            trigrams.computeIfAbsent(trigram(upper, i), k -> new Postings()).add(position);
+        }
+    }
+
+    private static long trigram(String s, int at) {
+        return ((long) s.charAt(at) << 32) | ((long) s.charAt(at + 1) << 16) | s.charAt(at + 2);
+    }
+
+    private static int[] intersect(int[] sorted, Postings postings) {
+        int[] out = new int[Math.min(sorted.length, postings.size)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted.length && j < postings.size) {
+            int a = sorted[i];
+            int b = postings.positions[j];
+            if (a == b) {
+                out[n++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // ascending positions of the names containing one trigram; a name repeating a trigram is only added once
+    private static final class Postings {
+        private int[] positions = new int[4];
+        private int size;
+
+        private void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.store.service;
+
+import com.example.store.entity.Customer;
+import com.example.store.repository.CustomerRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Customer name search for GET /customer/search.
+ * <p>
+ * On Postgres the matching is served by the pg_trgm GIN index on upper(name) (db.changelog-7) and offset/fetch-all
+ * results are ranked by trigram similarity, best match first. Other databases (H2 in the tests) run the same LIKE
+ * patterns in id order. Keyset pages are always in id order, since the cursor is the customer id.
+ * With the optional {@link CustomerSearchIndex} the matching, paging and counting happen in memory (in id order) and
+ * only the customers of the page are read from the database.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CustomerSearchService {
+
+    public enum Mode {
+        /** The name contains the term anywhere (the original behaviour). */
+        SUBSTRING,
+        /** One of the words of the name starts with the term. */
+        PREFIX;
+
+        public static Mode from(String value) {
+            if (value == null || value.isBlank()) {
+                return SUBSTRING;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search mode: " + value);
+            }
+        }
+    }
+
+    // the two LIKE patterns a name may match
+    private record Patterns(String pattern, String wordPattern) {}
+
+    private final CustomerRepository customerRepository;
+    private final boolean ranked;
+    // only present with store.customer-search.in-memory.enabled=true
+    private final ObjectProvider<CustomerSearchIndex> searchIndex;
+
+    public CustomerSearchService(CustomerRepository customerRepository,
+                                 @Value("${spring.datasource.url:}") String datasourceUrl,
+                                 ObjectProvider<CustomerSearchIndex> searchIndex) {
+        this.customerRepository = customerRepository;
+        this.ranked = DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.POSTGRESQL;
+        this.searchIndex = searchIndex;
+    }
+
+    /** Keeps the in-memory index (when enabled) current; call after a customer has been saved. */
+    public void customerSaved(Customer customer) {
+        CustomerSearchIndex index = searchIndex.getIfAvailable();
+        if (index != null) {
+            index.add(customer.getId(), customer.getName());
+        }
+    }
+
+    public List<Customer> search(String name, Mode mode) {
+        CustomerSearchIndex index = readyIndex();
+        if (index != null) {
+            return hydrate(index.search(name, mode, 0, 0).ids());
+        }
+        Patterns p = patterns(name, mode);
+        if (ranked) {
+            return customerRepository.searchRanked(name, p.pattern(), p.wordPattern());
+        }
+        if (mode == Mode.SUBSTRING) {
+            return customerRepository.findByNameIgnoreCaseContaining(name);
+        }
+        return customerRepository.findByNamePatterns(p.pattern(), p.wordPattern(), Sort.by("id"));
+    }
+
+    public Page<Customer> search(String name, Mode mode, Pageable pageable) {
+        CustomerSearchIndex index = readyIndex();
+        if (index != null) {
+            CustomerSearchIndex.Result result =
+                    index.search(name, mode, pageable.getOffset(), pageable.getPageSize());
+            return new PageImpl<>(hydrate(result.ids()), pageable, result.total());
+        }
+        Patterns p = patterns(name, mode);
+        if (ranked) {
+            return customerRepository.searchRanked(name, p.pattern(), p.wordPattern(), pageable);
+        }
+        if (mode == Mode.SUBSTRING) {
+            return customerRepository.findByNameIgnoreCaseContaining(name, pageable);
+        }
+        return customerRepository.findByNamePatterns(p.pattern(), p.wordPattern(), pageable);
+    }
+
+    /** Keyset page after {@code afterId}; the pageable supplies the page size and the id sort. */
+    public List<Customer> searchAfter(String name, Mode mode, long afterId, Pageable pageable) {
+        CustomerSearchIndex index = readyIndex();
+        if (index != null) {
+            return hydrate(index.searchAfter(name, mode, afterId, pageable.getPageSize()).ids());
+        }
+        if (mode == Mode.SUBSTRING) {
+            return customerRepository.findByNameIgnoreCaseContainingAndIdGreaterThan(name, afterId, pageable);
+        }
+        Patterns p = patterns(name, mode);
+        return customerRepository.findByNamePatternsAfter(p.pattern(), p.wordPattern(), afterId, pageable);
+    }
+
+    public long count(String name, Mode mode) {
+        CustomerSearchIndex index = readyIndex();
+        if (index != null) {
+            return index.search(name, mode, 0, 1).total();
+        }
+        if (mode == Mode.SUBSTRING) {
+            return customerRepository.countByNameIgnoreCaseContaining(name);
+        }
+        Patterns p = patterns(name, mode);
+        return customerRepository.countByNamePatterns(p.pattern(), p.wordPattern());
+    }
+
+    private CustomerSearchIndex readyIndex() {
+        CustomerSearchIndex index = searchIndex.getIfAvailable();
+        return index != null && index.isReady() ? index : null;
+    }
+
+    // one primary key lookup for the page, returned in the index's (id) order
+    private List<Customer> hydrate(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Customer> byId = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(ids)) {
+            byId.put(customer.getId(), customer);
+        }
+        List<Customer> customers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Customer customer = byId.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+        return customers;
+    }
+
+    private static Patterns patterns(String name, Mode mode) {
+        String term = escapeLike(name.toUpperCase(Locale.ROOT));
+        if (mode == Mode.PREFIX) {
+            // start of the name, or start of any later word
+            return new Patterns(term + "%", "% " + term + "%");
+        }
+        String anywhere = "%" + term + "%";
+        return new Patterns(anywhere, anywhere);
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.store.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.PreparedStatement;
+
+/**
+ * Alternative engine for the fetch-all GET /order body (store.order-cache.renderer=database, PostgreSQL only):
+ * Postgres renders every order as the JSON document Jackson would write for its OrderDTO, and the rows' bytes are
+ * concatenated into the array without being decoded, mapped or re-encoded.
+ * <p>
+ * The documents are built by string concatenation rather than json_build_object / json_agg, whose output has spaces
+ * after the colons and commas; to_json() does the string escaping. Property order, null handling and the ordering of
+ * orders and products follow OrderDTO and {@link OrderQueryService#findAllOrdersWithProducts()}, which
+ * OrderJsonRendererTest checks byte for byte. One statement, so one consistent snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "store.order-cache", name = "renderer", havingValue = "database")
+public class OrderJsonRenderer {
+
+    static final String ORDERS_AS_JSON = """
+        select '{"id":' || o.id
+               || ',"description":' || coalesce(to_json(o.description)::text, 'null')
+               || ',"products":[' || coalesce(p.products, '') || ']'
+               || ',"customer":{"id":' || c.id
+               || ',"name":' || coalesce(to_json(c.name)::text, 'null') || '}}'
+        from public."order" o
+        join public.customer c on c.id = o.customer_id
+        left join (
+            select op.order_id,
+                   string_agg('{"id":' || pr.id
+                              || ',"description":' || coalesce(to_json(pr.description)::text, 'null') || '}',
+                              ',' order by op.product_id) as products
+            from public.order_product op
+            join public.product pr on pr.id = op.product_id
+            group by op.order_id
+        ) p on p.order_id = o.id
+        order by o.created_at desc, o.id desc
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** The JSON array of every order with its customer and products, as UTF-8. */
+    @Transactional(readOnly = true)
+    public byte[] renderAllOrders() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(64 * 1024);
+        json.write('[');
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ORDERS_AS_JSON);
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            if (json.size() > 1) {
+                json.write(',');
+            }
+            // pgjdbc hands back the text value's bytes as received (UTF-8), no String in between
+            byte[] order = rs.getBytes(1);
+            upperCaseUnicodeEscapes(order);
+            json.write(order, 0, order.length);
+        });
+        json.write(']');
+        return json.toByteArray();
+    }
+
+    /**
+     * Postgres escapes control characters as {@code \u001f}, Jackson as {@code \u001F}. Backslashes only occur as
+     * escapes in JSON text, so skipping the character after each one keeps an escaped backslash from being misread.
+     */
+    static void upperCaseUnicodeEscapes(byte[] json) {
+        for (int i = 0; i < json.length - 1; i++) {
+            if (json[i] != '\\') {
+                continue;
+            }
+            if (json[i + 1] == 'u') {
+                for (int k = i + 2; k < Math.min(i + 6, json.length); k++) {
+                    if (json[k] >= 'a' && json[k] <= 'f') {
+                        json[k] -= 'a' - 'A';
+                    }
+                }
+                i += 5;
+            } else {
+                i++;
+            }
+        }
+    }
+}
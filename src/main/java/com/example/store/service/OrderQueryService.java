@@ -3,47 +3,138 @@ package com.example.store.service;
 
 import com.example.store.api.dto.OrderDTO;
 import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.datasource.ParallelSnapshotReader;
 import com.example.store.mapper.OrderMapper;
 import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderDetailRow;
+import com.example.store.repository.projection.OrderPageRow;
 import com.example.store.repository.projection.OrderRow;
 import com.example.store.repository.projection.ProductSummaryView;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class OrderQueryService {
 
     private final OrderRepository orderRepository;
     private final OrderMapper orderMapper;
+    private final ParallelSnapshotReader snapshotReader;
 
+    /**
+     * Every order with its products. The order rows (with their customer) and all the order / product mappings are
+     * read at the same time on two connections sharing one snapshot (see {@link ParallelSnapshotReader}), then stitched.
+     * Runs without a transaction of its own, the reader opens one per query.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<OrderDTO> findAllOrdersWithProducts() {
-        // load the basic order/client information as a projection
-        List<OrderRow> orders = orderRepository.findAllRows();
+        return snapshotReader.read(
+                orderRepository::findAllRows,
+                orderRepository::findAllOrderProducts,
+                (orders, prows) -> orders.isEmpty() ? List.<OrderDTO>of() : stitch(orders, prows));
+    }
+
+    /**
+     * A page of orders in two queries: the page of lean order rows (plus the count query for the total), then the
+     * product summaries for only that page's order ids. No entity or lazy association is touched.
+     */
+    public Page<OrderDTO> findOrderPage(Pageable pageable) {
+        Page<OrderPageRow> rows = orderRepository.findPageRows(pageable);
+        return new PageImpl<>(withProducts(rows.getContent()), pageable, rows.getTotalElements());
+    }
+
+    /**
+     * One order in a single round trip: the order, its customer and its product summaries come from one flat join
+     * instead of loading the entity and initialising its lazy customer and products.
+     */
+    public Optional<OrderDTO> findOrderById(Long id) {
+        List<OrderDetailRow> rows = orderRepository.findDetailRows(id);
+        if (rows.isEmpty()) return Optional.empty();
+
+        OrderDTO dto = orderMapper.rowToDto(rows.get(0));
+        List<ProductSummaryDTO> products = new ArrayList<>(rows.size());
+        for (OrderDetailRow row : rows) {
+            if (row.getProductId() != null) {
+                products.add(orderMapper.toProductSummaryDto(row));
+            }
+        }
+        dto.setProducts(products);
+        return Optional.of(dto);
+    }
+
+    /** Attaches the product summaries to already loaded order rows with a single query restricted to their ids. */
+    public List<OrderDTO> withProducts(List<? extends OrderRow> orders) {
         if (orders.isEmpty()) return List.of();
 
-        // load all the product / order mappings as a projection
-        List<ProductSummaryView> prows = orderRepository.findAllOrderProducts();
+        List<Long> orderIds = orders.stream().map(OrderRow::getId).toList();
+        return stitch(orders, orderRepository.findOrderProductsByOrderIds(orderIds));
+    }
 
-        // Create a map of order ids to product summary information
-        Map<Long, List<ProductSummaryDTO>> productsByOrder =
-                prows.stream()
-                        .collect(Collectors.groupingBy(
-                                ProductSummaryView::getOrderId,
-                                Collectors.mapping(orderMapper::toProductSummaryDto, Collectors.toList())
-                        ));
+    /** Attaches the product summaries to (nearly) every order row with one unrestricted read of order_product. */
+    public List<OrderDTO> withAllProducts(List<? extends OrderRow> orders) {
+        if (orders.isEmpty()) return List.of();
+
+        return stitch(orders, orderRepository.findAllOrderProducts());
+    }
+
+    /**
+     * Attaches the products to the order rows. The product rows arrive ordered by order id, so they are indexed by
+     * {@link ProductSummaryTable} without a map of boxed ids; a product shared by many orders is one summary instance.
+     */
+    private List<OrderDTO> stitch(List<? extends OrderRow> orders, List<ProductSummaryView> prows) {
+        ProductSummaryTable products = ProductSummaryTable.of(prows, orderMapper);
 
-        // Stitch together the map and list into a single order id
         List<OrderDTO> result = new ArrayList<>(orders.size());
         for (OrderRow r : orders) {
             OrderDTO dto = orderMapper.rowToDto(r);
-            dto.setProducts(productsByOrder.getOrDefault(r.getId(), List.of()));
+            dto.setProducts(products.forOrder(r.getId()));
             result.add(dto);
         }
         return result;
     }
-}
 
+    /**
+     * Streams every order (ordered by id) to the sink as soon as its products are known.
+     * Both cursors are ordered by order id, so they are merge-joined in a single pass and only the current
+     * order is held in memory, regardless of the table size. The transaction keeps the server side cursors open.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllOrdersWithProducts(Consumer<OrderDTO> sink) {
+        try (Stream<OrderRow> orders = orderRepository.streamAllRows();
+             Stream<ProductSummaryView> prows = orderRepository.streamAllOrderProducts()) {
+            Iterator<ProductSummaryView> products = prows.iterator();
+            ProductSummaryView pending = products.hasNext() ? products.next() : null;
+
+            Iterator<OrderRow> rows = orders.iterator();
+            while (rows.hasNext()) {
+                OrderRow r = rows.next();
+                long orderId = r.getId();
+
+                // skip any join rows for orders we have already passed (should not happen with the FK in place)
+                while (pending != null && pending.getOrderId() < orderId) {
+                    pending = products.hasNext() ? products.next() : null;
+                }
+
+                List<ProductSummaryDTO> summaries = new ArrayList<>();
+                while (pending != null && pending.getOrderId() == orderId) {
+                    summaries.add(orderMapper.toProductSummaryDto(pending));
+                    pending = products.hasNext() ? products.next() : null;
+                }
+
+                OrderDTO dto = orderMapper.rowToDto(r);
+                dto.setProducts(summaries);
+                sink.accept(dto);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the serialized body of the fetch-all GET /order response for one snapshot tag.
+ * <p>
+ * While the tag reported by {@link SnapshotTagService} (or the read model) is unchanged, every request is answered
+ * with the same bytes - no query, no mapping, no Jackson. Only the latest snapshot is kept: an older tag is never
+ * served again once the data moved on. Misses are single-flighted, so a burst of requests after a change rebuilds the
+ * body once while the others wait for it. A body larger than {@code store.order-cache.max-bytes} is served but not
+ * kept.
+ */
+@Slf4j
+@Service
+public class OrderResponseCache implements MeterBinder {
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final boolean gzip;
+
+    private final ReentrantLock rebuild = new ReentrantLock();
+    private volatile Entry current;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** The serialized body for {@code etag}; {@code gzip} is the pre-compressed variant, or null when disabled. */
+    public record Entry(String etag, byte[] json, byte[] gzip) {
+
+        long size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    public OrderResponseCache(ObjectMapper objectMapper,
+                              @Value("${store.order-cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${store.order-cache.gzip:true}") boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.gzip = gzip;
+    }
+
+    /** Returns the body for {@code etag}, building it from {@code orders} if it is not the cached snapshot. */
+    public Entry get(String etag, Supplier<List<OrderDTO>> orders) {
+        return getRendered(etag, () -> serialize(orders.get()));
+    }
+
+    /**
+     * Returns the body for {@code etag}, taking the already serialized JSON array from {@code json} if it is not the
+     * cached snapshot (see {@link OrderJsonRenderer}).
+     */
+    public Entry getRendered(String etag, Supplier<byte[]> json) {
+        Entry entry = current;
+        if (entry != null && entry.etag().equals(etag)) {
+            hits.increment();
+            return entry;
+        }
+        rebuild.lock();
+        try {
+            // another request may have built it while we waited
+            entry = current;
+            if (entry != null && entry.etag().equals(etag)) {
+                hits.increment();
+                return entry;
+            }
+            misses.increment();
+            entry = build(etag, json.get());
+            if (entry.size() <= maxBytes) {
+                current = entry;
+            } else {
+                log.warn("Fetch-all order response of {} bytes exceeds store.order-cache.max-bytes={}; not cached",
+                        entry.size(), maxBytes);
+                current = null; // do not keep the previous snapshot alive either
+            }
+            return entry;
+        } finally {
+            rebuild.unlock();
+        }
+    }
+
+    public void clear() {
+        current = null;
+    }
+
+    /**
+     * store.order-cache.requests{result=hit|miss} (a request that waited for another's rebuild counts as a hit) and
+     * store.order-cache.size, the bytes held for the current snapshot.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("store.order-cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Fetch-all order body lookups, by outcome")
+                .register(registry);
+        FunctionCounter.builder("store.order-cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Fetch-all order body lookups, by outcome")
+                .register(registry);
+        Gauge.builder("store.order-cache.size", this, cache -> {
+                    Entry entry = cache.current;
+                    return entry == null ? 0 : entry.size();
+                })
+                .baseUnit("bytes")
+                .description("Size of the cached fetch-all order body (json plus gzip copy)")
+                .register(registry);
+    }
+
+    /** The JSON the fetch-all response has always been: Jackson's serialization of the list of OrderDTOs. */
+    public byte[] serialize(List<OrderDTO> orders) {
+        try {
+            return objectMapper.writerFor(objectMapper.getTypeFactory()
+                            .constructCollectionType(List.class, OrderDTO.class))
+                    .writeValueAsBytes(orders);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Entry build(String etag, byte[] json) {
+        try {
+            return new Entry(etag, json, gzip ? gzip(json) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, json.length / 4));
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(json);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.ProductDTO;
+import com.example.store.config.CacheConfig;
+import com.example.store.mapper.ProductMapper;
+import com.example.store.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Product reads behind the {@link CacheConfig#PRODUCTS} cache. The cached DTOs are shared between requests and must
+ * not be modified by callers. A product's detail lists the orders that contain it, so creating an order has to
+ * {@link #evict(Collection)} its products.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class ProductQueryService {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    /** Product detail with its order ids, one statement on a miss. */
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, unless = "#result == null")
+    public Optional<ProductDTO> findProductById(Long id) {
+        return Optional.ofNullable(productMapper.detailRowsToDto(productRepository.findDetailRows(id)));
+    }
+
+    /** Drops the cached details of products whose order list changed. */
+    public void evict(Collection<Long> productIds) {
+        cacheManager.ifAvailable(manager -> {
+            Cache products = manager.getCache(CacheConfig.PRODUCTS);
+            if (products != null) {
+                productIds.forEach(products::evict);
+            }
+        });
+    }
+}
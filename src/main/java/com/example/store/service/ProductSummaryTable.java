@@ -0,0 +1,149 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.projection.ProductSummaryView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The product summaries of a set of orders, built once per stitch in {@link OrderQueryService}.
+ * <p>
+ * The order_product rows come ordered by order id, so the products of one order are one contiguous run. The runs are
+ * recorded as a sorted {@code long[]} of order ids with their start offsets into a single array of summaries, and an
+ * order's products are a sub-list view of that array. Lookups try the run next to the previous hit first, so orders
+ * visited in id order (either direction) are a plain merge; other orders (the fetch-all rows are newest first) fall
+ * back to a binary search. A product that appears in many orders is mapped once, through an open-addressing table
+ * keyed by the primitive product id, and the same summary instance is shared by all of them.
+ * <p>
+ * So there is no Long map key, map entry, per-order collector list or per-row DTO. The shared summaries and lists
+ * must be treated as read-only: a change to one summary would show in every order that contains the product.
+ */
+final class ProductSummaryTable {
+
+    private final long[] orderIds;
+    // the products of orderIds[i] are summaries[starts[i]] .. summaries[starts[i + 1] - 1]
+    private final int[] starts;
+    private final int orders;
+    private final List<ProductSummaryDTO> summaries;
+    private int last = -1;
+
+    private ProductSummaryTable(long[] orderIds, int[] starts, int orders, ProductSummaryDTO[] summaries) {
+        this.orderIds = orderIds;
+        this.starts = starts;
+        this.orders = orders;
+        this.summaries = Arrays.asList(summaries);
+    }
+
+    static ProductSummaryTable of(List<ProductSummaryView> rows, OrderMapper orderMapper) {
+        if (!sortedByOrderId(rows)) {
+            rows = new ArrayList<>(rows);
+            rows.sort(Comparator.comparing(ProductSummaryView::getOrderId));
+        }
+        int n = rows.size();
+        ProductSummaryDTO[] summaries = new ProductSummaryDTO[n];
+        long[] orderIds = new long[Math.min(n, 1024)];
+        int[] starts = new int[orderIds.length + 1];
+        int orders = 0;
+        Flyweights flyweights = new Flyweights();
+
+        for (int i = 0; i < n; i++) {
+            ProductSummaryView row = rows.get(i);
+            long orderId = row.getOrderId();
+            if (orders == 0 || orderIds[orders - 1] != orderId) {
+                if (orders == orderIds.length) {
+                    orderIds = Arrays.copyOf(orderIds, orders * 2);
+                    starts = Arrays.copyOf(starts, orders * 2 + 1);
+                }
+                orderIds[orders] = orderId;
+                starts[orders++] = i;
+            }
+            summaries[i] = flyweights.get(row, orderMapper);
+        }
+        starts[orders] = n;
+        return new ProductSummaryTable(orderIds, starts, orders, summaries);
+    }
+
+    /** The products of {@code orderId} in product id order, or an empty list. */
+    List<ProductSummaryDTO> forOrder(long orderId) {
+        int i = indexOf(orderId);
+        if (i < 0) {
+            return List.of();
+        }
+        last = i;
+        return summaries.subList(starts[i], starts[i + 1]);
+    }
+
+    private int indexOf(long orderId) {
+        if (last >= 0) {
+            if (last + 1 < orders && orderIds[last + 1] == orderId) {
+                return last + 1;
+            }
+            if (last > 0 && orderIds[last - 1] == orderId) {
+                return last - 1;
+            }
+        }
+        return Arrays.binarySearch(orderIds, 0, orders, orderId);
+    }
+
+    private static boolean sortedByOrderId(List<ProductSummaryView> rows) {
+        for (int i = 1; i < rows.size(); i++) {
+            if (rows.get(i - 1).getOrderId() > rows.get(i).getOrderId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** One summary per product id; open addressing with linear probing, a null value marks a free slot. */
+    private static final class Flyweights {
+
+        private long[] keys = new long[256];
+        private ProductSummaryDTO[] values = new ProductSummaryDTO[256];
+        private int size;
+
+        ProductSummaryDTO get(ProductSummaryView row, OrderMapper orderMapper) {
+            long productId = row.getProductId();
+            int mask = keys.length - 1;
+            int slot = slot(productId, mask);
+            while (values[slot] != null) {
+                if (keys[slot] == productId) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            ProductSummaryDTO summary = orderMapper.toProductSummaryDto(row);
+            keys[slot] = productId;
+            values[slot] = summary;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return summary;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            ProductSummaryDTO[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new ProductSummaryDTO[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long productId, int mask) {
+            return (int) ((productId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
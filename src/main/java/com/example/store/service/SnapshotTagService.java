@@ -1,49 +1,242 @@
 package com.example.store.service;
 
-import lombok.RequiredArgsConstructor;
+import com.example.store.datasource.ReplicaLagMonitor;
+import com.example.store.datasource.ReplicaRouting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.ETag;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Snapshot tags (ETag and Last-Modified) over the change_version counters.
+ * <p>
+ * The counters are memoized and re-read every {@code store.conditional.version-refresh-interval} (see
+ * {@link #refresh()}), so a conditional GET costs no database round trip. The price is bounded staleness: a write made
+ * through another instance, or straight to the database, shows in the tags up to one interval later, so for that long
+ * a client can still get a 304 for the body it had before the write. Writes through this instance call
+ * {@link #invalidate()} once they have committed (see ConditionalRequestConfig), so a client reading its own write
+ * never sees the old tag. A memo older than twice the interval (the refresh is not running) is not used.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-public class SnapshotTagService {
+public class SnapshotTagService implements MeterBinder {
     private final JdbcTemplate jdbcTemplate;
+    // only present with a read replica configured, see ReplicaDataSourceConfig
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+    private final long maxAgeNanos;
+
+    private record Memo(List<TableVersion> versions, long readAtNanos) {}
+
+    // guards the generation check and the memo update, so a read started before an invalidate() never replaces it
+    private final ReentrantLock lock = new ReentrantLock();
+    private long generation;
+    private volatile Memo memo;
+
+    // outcomes of matchesConditional and matchingRepresentation, exported as store.conditional.requests{result=...}
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder modified = new LongAdder();
+    private final LongAdder unconditional = new LongAdder();
+
+    public record Snapshot(String etag, long lastModified) {
+
+        /**
+         * The same snapshot for another representation of the resource (e.g. the NDJSON fetch-all): the tag gets a
+         * suffix, so a strong tag is never shared by two different bodies, and Last-Modified is unchanged.
+         */
+        public Snapshot forRepresentation(String name) {
+            String tag = etag.endsWith("\"")
+                    ? etag.substring(0, etag.length() - 1) + "-" + name + "\""
+                    : etag + "-" + name;
+            return new Snapshot(tag, lastModified);
+        }
+    }
+
+    /** Tables whose rows end up in an OrderDTO: the order itself, its product links, product descriptions and the
+     *  customer name. */
+    public static final List<String> ORDER_PAYLOAD_TABLES = List.of("order", "order_product", "product", "customer");
 
-    public record Snapshot(String etag, long lastModified) {}
+    private record TableVersion(String table, long version, Instant updatedAt) {}
 
-    // this generates a quick validation to see if the orders table has changed since the last query.
-    // we use the count of the number of orders and the last updated time in the table to check if anything
-    // has changed on this table. This will catch CREATE, UPDATE or DELETE operations on the table with low overhead
-    // since there is an index on the order updated_at column.
+    public SnapshotTagService(JdbcTemplate jdbcTemplate,
+                              ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                              @Value("${store.conditional.version-refresh-interval:PT1S}") Duration refreshInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.maxAgeNanos = refreshInterval.multipliedBy(2).toNanos();
+    }
+
+    // this generates a quick validation to see if anything in the order payload has changed since the last query.
+    // Statement level triggers bump a per-table counter in change_version on every insert, update, delete or truncate
+    // (see db.changelog-6), so this is a primary key lookup of a handful of rows instead of a scan of "order", and a
+    // change to a product description or an order's product links moves the tag as well.
     public Snapshot current() {
-        var row = jdbcTemplate.queryForMap("""
-        select coalesce(max(updated_at), 'epoch'::timestamptz) as maxu,
-               count(*) as cnt
-        from public."order"
-        """);
-        java.time.Instant maxUpdated = (row.get("maxu") instanceof java.sql.Timestamp ts)
-                ? ts.toInstant()
-                : java.time.Instant.EPOCH;
-        long count = ((Number) row.get("cnt")).longValue();
-
-        String basis = count + "|" + maxUpdated.toEpochMilli();
-        String etag = "\"" + sha256Base64Url(basis) + "\""; // quotes are required per RFC
+        return forTables(ORDER_PAYLOAD_TABLES);
+    }
+
+    /** Snapshot over the given tables only; the tag changes whenever any of them is written to. */
+    public Snapshot forTables(Collection<String> tables) {
+        return forTables(tables, "");
+    }
+
+    /**
+     * Snapshot over the given tables for one resource (a path and query string), so that two resources backed by the
+     * same tables never share a tag.
+     * <p>
+     * The versions always come from the primary (read outside a transaction), even when a read replica is configured:
+     * a client's tag is never compared with a replica that has not seen its write yet. If the replica is behind on any
+     * of the tables, the rest of the request is pinned to the primary as well, so the body served with the tag is
+     * never older than the tag.
+     */
+    public Snapshot forTables(Collection<String> tables, String resource) {
+        List<TableVersion> versions = versions();
+
+        StringBuilder basis = new StringBuilder(resource).append('|');
+        Instant maxUpdated = Instant.EPOCH;
+        Map<String, Long> seen = new HashMap<>();
+        for (TableVersion v : versions) {
+            if (!tables.contains(v.table())) continue;
+            basis.append(v.table()).append(':').append(v.version()).append('|');
+            if (v.updatedAt().isAfter(maxUpdated)) maxUpdated = v.updatedAt();
+            seen.put(v.table(), v.version());
+        }
+        replicaLagMonitor.ifAvailable(monitor -> {
+            if (!monitor.isCaughtUp(seen)) ReplicaRouting.pinToPrimary();
+        });
+
+        String etag = "\"" + sha256Base64Url(basis.toString()) + "\""; // quotes are required per RFC
         return new Snapshot(etag, maxUpdated.toEpochMilli());
     }
 
+    /** Re-reads the counters; scheduled, so that requests find a fresh memo. */
+    @Scheduled(fixedDelayString = "${store.conditional.version-refresh-interval:PT1S}")
+    public void refresh() {
+        try {
+            load();
+        } catch (DataAccessException e) {
+            // requests read the counters themselves once the memo is too old
+            log.warn("Refreshing the change versions failed: {}", e.getMessage());
+        }
+    }
+
+    /** Drops the memo after a write has committed, so the next tag is read from the database. */
+    public void invalidate() {
+        lock.lock();
+        try {
+            generation++;
+            memo = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<TableVersion> versions() {
+        Memo m = memo;
+        if (m != null && System.nanoTime() - m.readAtNanos() < maxAgeNanos) {
+            return m.versions();
+        }
+        return load();
+    }
+
+    private List<TableVersion> load() {
+        long started;
+        lock.lock();
+        try {
+            started = generation;
+        } finally {
+            lock.unlock();
+        }
+        long readAt = System.nanoTime();
+        List<TableVersion> versions = jdbcTemplate.query("""
+        select table_name, version, updated_at
+        from public.change_version
+        order by table_name
+        """, (rs, i) -> new TableVersion(rs.getString(1), rs.getLong(2), rs.getTimestamp(3).toInstant()));
+
+        lock.lock();
+        try {
+            // not when invalidated meanwhile: the rows may predate the write, which the memo must not hide again
+            if (generation == started && (memo == null || memo.readAtNanos() - readAt < 0)) {
+                memo = new Memo(versions, readAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return versions;
+    }
+
     // This function checks if the snapshot etag is still valid.
     public boolean matchesConditional(String ifNoneMatch, long ifModifiedSince, Snapshot snap) {
-        boolean etagMatch = ifNoneMatch != null && ifNoneMatch.equals(snap.etag());
-        boolean timeMatch = (ifModifiedSince > 0) && (snap.lastModified <= ifModifiedSince);
-        // If client sent both, HTTP says both must match to return 304
-        if (ifNoneMatch != null && ifModifiedSince > 0) return etagMatch && timeMatch;
-        if (ifNoneMatch != null) return etagMatch;
-        if (ifModifiedSince > 0) return timeMatch;
-        return false;
+        return matchingRepresentation(ifNoneMatch, ifModifiedSince, snap) != null;
+    }
+
+    /**
+     * For a resource served in several representations under their own tags (e.g. the identity and the gzip body of
+     * the fetch-all): the first representation the validators match, or null. A client may hold any of them.
+     */
+    public Snapshot matchingRepresentation(String ifNoneMatch, long ifModifiedSince, Snapshot... representations) {
+        Snapshot match = null;
+        for (Snapshot representation : representations) {
+            if (matches(ifNoneMatch, ifModifiedSince, representation)) {
+                match = representation;
+                break;
+            }
+        }
+        if (match != null) notModified.increment();
+        else if (ifNoneMatch != null || ifModifiedSince > 0) modified.increment();
+        else unconditional.increment();
+        return match;
+    }
+
+    /**
+     * store.conditional.requests{result=not_modified|modified|unconditional}: the 304 ratio of every conditional GET
+     * (the fetch-all /order and the interceptor-backed endpoints) is not_modified / (not_modified + modified).
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        conditionalRequests(registry, "not_modified", notModified);
+        conditionalRequests(registry, "modified", modified);
+        conditionalRequests(registry, "unconditional", unconditional);
+    }
+
+    private static void conditionalRequests(MeterRegistry registry, String result, LongAdder count) {
+        FunctionCounter.builder("store.conditional.requests", count, LongAdder::sum)
+                .tag("result", result)
+                .description("GET requests checked against a snapshot tag, by outcome")
+                .register(registry);
+    }
+
+    // RFC 9110 section 13.1.2: If-None-Match is "*" or a list of tags, compared weakly (W/"x" matches "x"); when it is
+    // present If-Modified-Since is ignored (section 13.1.3)
+    private static boolean matches(String ifNoneMatch, long ifModifiedSince, Snapshot snap) {
+        if (ifNoneMatch != null) {
+            ETag current = ETag.create(snap.etag());
+            for (ETag tag : ETag.parse(ifNoneMatch)) {
+                if (tag.isWildcard() || tag.compare(current, false)) return true;
+            }
+            return false;
+        }
+        return ifModifiedSince > 0 && snap.lastModified <= ifModifiedSince;
     }
 
-    // this is used to generate a unique value for the etag for a given count & last updated at date.
-    private static String sha256Base64Url(String s) {
+    // this is used to generate a unique value for the etag for a given set of table versions.
+    // package-private for SnapshotTagServiceBenchmark
+    static String sha256Base64Url(String s) {
         try {
             var md = java.security.MessageDigest.getInstance("SHA-256");
             byte[] digest = md.digest(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
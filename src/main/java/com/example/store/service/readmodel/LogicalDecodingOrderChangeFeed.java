@@ -0,0 +1,149 @@
+package com.example.store.service.readmodel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Change feed backed by Postgres logical decoding (the server runs with wal_level=logical, see README).
+ * <p>
+ * A temporary replication slot using the built-in test_decoding plugin is created in {@link #start()}, before the read
+ * model takes its snapshot, so nothing committed after that point is missed. The slot disappears with the connection,
+ * so a stopped application never pins WAL on the server. Unlike the polling feed this sees deletes, order_product
+ * changes and customer renames.
+ */
+@Slf4j
+public class LogicalDecodingOrderChangeFeed implements OrderChangeFeed, AutoCloseable {
+
+    // test_decoding emits e.g.: table public."order": UPDATE: id[bigint]:42 description[character varying]:'...' ...
+    // The key column is the first column of every table we follow, so only the start of the tuple is parsed.
+    private static final Pattern CHANGE =
+            Pattern.compile("^table public\\.(\"order\"|order_product|product|customer): (INSERT|UPDATE|DELETE): \\w+\\[bigint\\]:(\\d+)");
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String slotName;
+
+    // guards the connection and the stream; a lock rather than synchronized, which would pin a virtual thread while
+    // it waits on the replication connection
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection connection;
+    private PGReplicationStream stream;
+
+    public LogicalDecodingOrderChangeFeed(String url, String username, String password, String slotName) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.slotName = slotName;
+    }
+
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            Properties props = new Properties();
+            PGProperty.USER.set(props, username);
+            PGProperty.PASSWORD.set(props, password);
+            PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, "10");
+            PGProperty.REPLICATION.set(props, "database");
+            PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+            connection = DriverManager.getConnection(url, props);
+
+            PGConnection replication = connection.unwrap(PGConnection.class);
+            replication.getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withOutputPlugin("test_decoding")
+                    .withTemporaryOption()
+                    .make();
+            stream = replication.getReplicationAPI()
+                    .replicationStream()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withSlotOption("include-xids", false)
+                    .withSlotOption("skip-empty-xacts", true)
+                    .withStatusInterval(10, TimeUnit.SECONDS)
+                    .start();
+            log.info("Logical decoding change feed started on temporary slot {}", slotName);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to start logical decoding on slot " + slotName, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<OrderChangeEvent> poll() {
+        List<OrderChangeEvent> events = new ArrayList<>();
+        lock.lock();
+        try {
+            // everything received before this poll has been handed to (and applied by) the read model
+            LogSequenceNumber applied = stream.getLastReceiveLSN();
+            stream.setAppliedLSN(applied);
+            stream.setFlushedLSN(applied);
+
+            ByteBuffer message;
+            while ((message = stream.readPending()) != null) {
+                String change = new String(message.array(), message.arrayOffset(),
+                        message.array().length - message.arrayOffset(), StandardCharsets.UTF_8);
+                OrderChangeEvent event = parse(change);
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Logical decoding stream failed on slot " + slotName, e);
+        } finally {
+            lock.unlock();
+        }
+        return events;
+    }
+
+    static OrderChangeEvent parse(String change) {
+        Matcher m = CHANGE.matcher(change);
+        if (!m.find()) {
+            return null; // BEGIN / COMMIT or a table we do not follow
+        }
+        long id = Long.parseLong(m.group(3));
+        return switch (m.group(1)) {
+            case "\"order\"" -> "DELETE".equals(m.group(2))
+                    ? OrderChangeEvent.orderDeleted(id)
+                    : OrderChangeEvent.orderUpserted(id);
+            case "order_product" -> OrderChangeEvent.orderUpserted(id);
+            case "product" -> OrderChangeEvent.productChanged(id);
+            default -> OrderChangeEvent.customerChanged(id);
+        };
+    }
+
+    @Override
+    public void close() throws SQLException {
+        lock.lock();
+        try {
+            if (stream != null) {
+                stream.close();
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
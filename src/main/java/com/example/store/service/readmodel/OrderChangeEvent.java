@@ -0,0 +1,35 @@
+package com.example.store.service.readmodel;
+
+/**
+ * A change to one of the tables that contribute to an OrderDTO. Events only carry ids - the read model reloads the
+ * current state of the affected orders - so applying the same event twice is harmless.
+ */
+public record OrderChangeEvent(Kind kind, long id) {
+
+    public enum Kind {
+        /** An order (or its order_product rows) was inserted or updated; {@code id} is the order id. */
+        ORDER_UPSERTED,
+        /** An order was deleted; {@code id} is the order id. */
+        ORDER_DELETED,
+        /** A product changed; every order containing it is reloaded. {@code id} is the product id. */
+        PRODUCT_CHANGED,
+        /** A customer changed; every order of that customer is reloaded. {@code id} is the customer id. */
+        CUSTOMER_CHANGED
+    }
+
+    public static OrderChangeEvent orderUpserted(long orderId) {
+        return new OrderChangeEvent(Kind.ORDER_UPSERTED, orderId);
+    }
+
+    public static OrderChangeEvent orderDeleted(long orderId) {
+        return new OrderChangeEvent(Kind.ORDER_DELETED, orderId);
+    }
+
+    public static OrderChangeEvent productChanged(long productId) {
+        return new OrderChangeEvent(Kind.PRODUCT_CHANGED, productId);
+    }
+
+    public static OrderChangeEvent customerChanged(long customerId) {
+        return new OrderChangeEvent(Kind.CUSTOMER_CHANGED, customerId);
+    }
+}
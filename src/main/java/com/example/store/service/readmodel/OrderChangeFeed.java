@@ -0,0 +1,18 @@
+package com.example.store.service.readmodel;
+
+import java.util.List;
+
+/**
+ * Source of changes for the {@link OrderReadModel}.
+ */
+public interface OrderChangeFeed {
+
+    /**
+     * Called once before the read model takes its bootstrap snapshot, so that any change committed while the snapshot
+     * is being loaded is still delivered by a later {@link #poll()}.
+     */
+    void start();
+
+    /** Returns the changes seen since the previous poll (possibly including some already delivered). Never blocks. */
+    List<OrderChangeEvent> poll();
+}
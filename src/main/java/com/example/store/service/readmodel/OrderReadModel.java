@@ -0,0 +1,226 @@
+package com.example.store.service.readmodel;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.datasource.ReplicaRouting;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderPageRow;
+import com.example.store.service.OrderQueryService;
+import com.example.store.service.SnapshotTagService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of every OrderDTO, in the fetch-all order (created_at desc, id desc).
+ * <p>
+ * The model is loaded once when the application is ready (the same two queries as the fetch-all path) and then kept
+ * current from an {@link OrderChangeFeed}: every poll turns the change events into a set of order ids, and only those
+ * orders are reloaded from the database. Readers get an immutable {@link View} swapped in after each batch, so
+ * GET /order and GET /order/{id} never take a lock or touch the database while the model is ready.
+ * Enabled with {@code store.read-model.enabled=true}, see {@link com.example.store.config.ReadModelConfig}.
+ * The feed follows the primary, so the model always loads from the primary, never from a read replica.
+ */
+@Slf4j
+public class OrderReadModel {
+
+    // keeps the IN lists of the reload query at a size every database handles comfortably
+    private static final int RELOAD_CHUNK = 500;
+
+    private static final Comparator<Key> FETCH_ALL_ORDER =
+            Comparator.comparing(Key::createdAt).thenComparingLong(Key::id).reversed();
+
+    private final OrderRepository orderRepository;
+    private final OrderQueryService orderQueryService;
+    private final OrderChangeFeed feed;
+
+    // writer side, guarded by lock (not a monitor: the writers run queries, which would pin a virtual thread)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final NavigableMap<Key, OrderDTO> sorted = new TreeMap<>(FETCH_ALL_ORDER);
+    private final Map<Long, Key> keys = new HashMap<>();
+    private final long epoch = System.currentTimeMillis();
+    private long version;
+
+    // reader side
+    private volatile View view;
+
+    private record Key(Instant createdAt, long id) {}
+
+    /**
+     * An immutable, consistent state of the model. The snapshot tag changes whenever the content does, so it can be
+     * used as the ETag of the list it belongs to.
+     */
+    public record View(List<OrderDTO> orders, Map<Long, OrderDTO> byId, SnapshotTagService.Snapshot snapshot) {
+
+        public Optional<OrderDTO> findById(long id) {
+            return Optional.ofNullable(byId.get(id));
+        }
+    }
+
+    public OrderReadModel(OrderRepository orderRepository, OrderQueryService orderQueryService, OrderChangeFeed feed) {
+        this.orderRepository = orderRepository;
+        this.orderQueryService = orderQueryService;
+        this.feed = feed;
+    }
+
+    public boolean isReady() {
+        return view != null;
+    }
+
+    /** The current view, or {@code null} until the bootstrap has completed. */
+    public View view() {
+        return view;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        lock.lock();
+        try {
+            // start the feed first: anything committed while the snapshot loads is delivered (again) by the next poll
+            feed.start();
+
+            List<OrderPageRow> rows = ReplicaRouting.callOnPrimary(
+                    () -> orderRepository.findPageRows(Pageable.unpaged()).getContent());
+            List<OrderDTO> dtos = ReplicaRouting.callOnPrimary(() -> orderQueryService.withAllProducts(rows));
+            sorted.clear();
+            keys.clear();
+            for (int i = 0; i < rows.size(); i++) {
+                put(rows.get(i), dtos.get(i));
+            }
+            publish();
+            log.info("Order read model loaded with {} orders", sorted.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${store.read-model.poll-interval:PT1S}")
+    public void poll() {
+        if (!isReady()) {
+            return;
+        }
+        apply(feed.poll());
+    }
+
+    /**
+     * Re-checks the set of order ids against the table. Only needed for feeds that cannot see deletes (the polling
+     * feed), but cheap enough - one index-only scan - to run for every feed.
+     */
+    @Scheduled(
+            initialDelayString = "${store.read-model.reconcile-interval:PT5M}",
+            fixedDelayString = "${store.read-model.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!isReady()) {
+            return;
+        }
+        lock.lock();
+        try {
+            Set<Long> present = new HashSet<>(ReplicaRouting.callOnPrimary(orderRepository::findAllIds));
+            Set<Long> stale = new HashSet<>(keys.keySet());
+            stale.removeAll(present);
+            present.removeAll(keys.keySet());
+            stale.addAll(present); // missing from memory: reload them, and drop the ones that are gone
+            if (!stale.isEmpty()) {
+                log.debug("Read model reconcile refreshes {} orders", stale.size());
+                reload(stale);
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Applies a batch of change events. Events only name ids, so a batch may be applied more than once. */
+    public void apply(List<OrderChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> customerIds = new HashSet<>();
+        Set<Long> orderIds = new HashSet<>();
+        for (OrderChangeEvent event : events) {
+            switch (event.kind()) {
+                case ORDER_UPSERTED, ORDER_DELETED -> orderIds.add(event.id());
+                case PRODUCT_CHANGED -> productIds.add(event.id());
+                case CUSTOMER_CHANGED -> customerIds.add(event.id());
+            }
+        }
+        lock.lock();
+        try {
+            if (!productIds.isEmpty() || !customerIds.isEmpty()) {
+                // product and customer changes only alter orders we already hold; find them with one pass over memory
+                for (OrderDTO dto : sorted.values()) {
+                    if (dto.getCustomer() != null && customerIds.contains(dto.getCustomer().getId())) {
+                        orderIds.add(dto.getId());
+                    } else if (containsAny(dto.getProducts(), productIds)) {
+                        orderIds.add(dto.getId());
+                    }
+                }
+            }
+            reload(orderIds);
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reloads the given orders from the database; ids that are no longer there are removed.
+    private void reload(Collection<Long> orderIds) {
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RELOAD_CHUNK));
+            List<OrderPageRow> rows = ReplicaRouting.callOnPrimary(() -> orderRepository.findRowsByIdIn(chunk));
+            List<OrderDTO> dtos = ReplicaRouting.callOnPrimary(() -> orderQueryService.withProducts(rows));
+
+            Set<Long> deleted = new HashSet<>(chunk);
+            for (int i = 0; i < rows.size(); i++) {
+                put(rows.get(i), dtos.get(i));
+                deleted.remove(rows.get(i).getId());
+            }
+            deleted.forEach(this::remove);
+        }
+    }
+
+    private void put(OrderPageRow row, OrderDTO dto) {
+        remove(row.getId());
+        Key key = new Key(row.getCreatedAt(), row.getId());
+        sorted.put(key, dto);
+        keys.put(row.getId(), key);
+    }
+
+    private void remove(long id) {
+        Key key = keys.remove(id);
+        if (key != null) {
+            sorted.remove(key);
+        }
+    }
+
+    private void publish() {
+        version++;
+        List<OrderDTO> orders = List.copyOf(sorted.values());
+        Map<Long, OrderDTO> byId = new HashMap<>(orders.size() * 4 / 3 + 1);
+        orders.forEach(dto -> byId.put(dto.getId(), dto));
+
+        String etag = "\"rm-" + epoch + "-" + version + "\""; // quotes are required per RFC
+        view = new View(orders, Collections.unmodifiableMap(byId),
+                new SnapshotTagService.Snapshot(etag, System.currentTimeMillis()));
+    }
+
+    private static boolean containsAny(List<ProductSummaryDTO> products, Set<Long> productIds) {
+        if (products == null || productIds.isEmpty()) {
+            return false;
+        }
+        for (ProductSummaryDTO product : products) {
+            if (productIds.contains(product.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
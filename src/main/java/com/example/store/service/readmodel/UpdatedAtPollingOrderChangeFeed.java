@@ -0,0 +1,103 @@
+package com.example.store.service.readmodel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * Fallback change feed that polls the indexed updated_at columns of "order" and product.
+ * <p>
+ * updated_at is set when a transaction starts, not when it commits, so each poll looks back {@code overlap} before
+ * the newest timestamp already seen. Rows already delivered with the same updated_at are not re-emitted. This feed
+ * cannot see deletes (the read model reconciles ids periodically for that), customer renames, or order_product rows
+ * changed without touching the order - use the logical decoding feed when those matter.
+ */
+@Slf4j
+public class UpdatedAtPollingOrderChangeFeed implements OrderChangeFeed {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration overlap;
+    // guards the watermarks; a lock rather than synchronized, which would pin a virtual thread during the queries
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PolledTable orders = new PolledTable(
+            "select id, updated_at from \"order\" where updated_at > ? order by updated_at",
+            OrderChangeEvent::orderUpserted);
+    private final PolledTable products = new PolledTable(
+            "select id, updated_at from product where updated_at > ? order by updated_at",
+            OrderChangeEvent::productChanged);
+
+    public UpdatedAtPollingOrderChangeFeed(JdbcTemplate jdbcTemplate, Duration overlap) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.overlap = overlap;
+    }
+
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            orders.watermark = maxUpdatedAt("select max(updated_at) from \"order\"");
+            products.watermark = maxUpdatedAt("select max(updated_at) from product");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<OrderChangeEvent> poll() {
+        List<OrderChangeEvent> events = new ArrayList<>();
+        lock.lock();
+        try {
+            orders.poll(events);
+            products.poll(events);
+        } finally {
+            lock.unlock();
+        }
+        return events;
+    }
+
+    private Instant maxUpdatedAt(String sql) {
+        Timestamp max = jdbcTemplate.queryForObject(sql, Timestamp.class);
+        return max == null ? Instant.EPOCH : max.toInstant();
+    }
+
+    private final class PolledTable {
+        private final String sql;
+        private final LongFunction<OrderChangeEvent> toEvent;
+        // rows delivered inside the overlap window, so a quiet table does not re-emit them on every poll
+        private final Map<Long, Instant> recentlyDelivered = new HashMap<>();
+        private Instant watermark = Instant.EPOCH;
+
+        private PolledTable(String sql, LongFunction<OrderChangeEvent> toEvent) {
+            this.sql = sql;
+            this.toEvent = toEvent;
+        }
+
+        private void poll(List<OrderChangeEvent> events) {
+            Instant since = watermark.minus(overlap);
+            jdbcTemplate.query(sql, rs -> {
+                long id = rs.getLong(1);
+                Instant updatedAt = rs.getTimestamp(2).toInstant();
+                if (!updatedAt.equals(recentlyDelivered.put(id, updatedAt))) {
+                    events.add(toEvent.apply(id));
+                }
+                if (updatedAt.isAfter(watermark)) {
+                    watermark = updatedAt;
+                }
+            }, Timestamp.from(since));
+
+            Instant windowStart = watermark.minus(overlap);
+            recentlyDelivered.values().removeIf(updatedAt -> updatedAt.isBefore(windowStart));
+            log.trace("Polled [{}] since {}; watermark now {}", sql, since, watermark);
+        }
+    }
+}
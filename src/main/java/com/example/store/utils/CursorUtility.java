@@ -0,0 +1,75 @@
+package com.example.store.utils;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque keyset pagination cursors handed out in the {@code rel="next"} Link.
+ * The cursor is the sort key of the last row of the previous page, so the next page is a seek on the index
+ * rather than an OFFSET scan. An empty cursor means "start from the first page".
+ */
+public class CursorUtility {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtility() {
+        // this class is a static utility. Should not be instantiated
+    }
+
+    /** Sort key of the order list: (created_at DESC, id DESC), matching idx_order_created_at_id. */
+    public record OrderKey(Instant createdAt, long id) {}
+
+    public static boolean isFirstPage(String cursor) {
+        return cursor == null || cursor.isBlank();
+    }
+
+    public static String encodeId(long id) {
+        return encode(Long.toString(id));
+    }
+
+    public static long decodeId(String cursor) {
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    public static String encodeOrderKey(Instant createdAt, long id) {
+        return encode(createdAt.toString() + SEPARATOR + id);
+    }
+
+    public static OrderKey decodeOrderKey(String cursor) {
+        String raw = decode(cursor);
+        int split = raw.lastIndexOf(SEPARATOR);
+        if (split < 0) {
+            throw invalid();
+        }
+        try {
+            return new OrderKey(Instant.parse(raw.substring(0, split)), Long.parseLong(raw.substring(split + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination cursor");
+    }
+}
@@ -1,13 +1,29 @@
 package com.example.store.utils;
 
+import com.example.store.api.dto.BulkCreateResultDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 public class ResponseUtility {
 
+    /** Page size used for cursor pages when the client does not send a limit (see ADR0002). */
+    public static final int DEFAULT_LIMIT = 25;
+
     private ResponseUtility() {
         // this class is a static utility. Should not be instantiated
     }
@@ -52,4 +68,64 @@ public class ResponseUtility {
 
         return String.join(", ", links);
     }
+
+    /**
+     * Builds the RFC 8288 Link header for keyset (cursor) pagination. Only {@code first} and {@code next} can be
+     * offered - there is no cheap way to seek backwards or to the last page. {@code nextCursor} is null on the last page.
+     */
+    public static String buildCursorLinkHeader(int limit, String nextCursor) {
+        UriComponentsBuilder base = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("offset");
+        List<String> links = new ArrayList<>();
+
+        String first = base.replaceQueryParam("limit", limit)
+                .replaceQueryParam("cursor", "")
+                .toUriString();
+        links.add("<" + first + ">; rel=\"first\"");
+
+        if (nextCursor != null) {
+            String next = base.replaceQueryParam("limit", limit)
+                    .replaceQueryParam("cursor", nextCursor)
+                    .toUriString();
+            links.add("<" + next + ">; rel=\"next\"");
+        }
+
+        return String.join(", ", links);
+    }
+
+    /**
+     * Runs a bulk insert and builds its 201 response with the created ids. A constraint violation (e.g. a missing
+     * customer or product) is a 409, as for the single creates.
+     */
+    public static <T> ResponseEntity<BulkCreateResultDTO> buildBulkCreatedResponse(Iterator<T> rows,
+                                                                                   Function<Iterator<T>, List<Long>> insert) {
+        List<Long> ids;
+        try {
+            ids = insert.apply(rows);
+        } catch (DataIntegrityViolationException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        BulkCreateResultDTO result = new BulkCreateResultDTO();
+        result.setCount(ids.size());
+        result.setIds(ids);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
+    /** Same as {@link #buildBulkCreatedResponse(Iterator, Function)} for an NDJSON body, read one line at a time. */
+    public static <T> ResponseEntity<BulkCreateResultDTO> buildBulkCreatedResponse(InputStream ndjson, ObjectReader reader,
+                                                                                   Function<Iterator<T>, List<Long>> insert) {
+        try (MappingIterator<T> rows = reader.readValues(ndjson)) {
+            return buildBulkCreatedResponse(rows, insert);
+        } catch (RuntimeException e) {
+            // MappingIterator reports a bad line while the insert runs, wrapped in an unchecked exception
+            if (e.getCause() instanceof JsonProcessingException cause) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid NDJSON line: " + cause.getOriginalMessage());
+            }
+            throw e;
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid NDJSON body: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
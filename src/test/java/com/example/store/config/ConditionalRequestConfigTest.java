@@ -0,0 +1,141 @@
+package com.example.store.config;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductDTO;
+import com.example.store.controller.CustomerController;
+import com.example.store.controller.OrderController;
+import com.example.store.controller.ProductController;
+import com.example.store.entity.Customer;
+import com.example.store.mapper.CustomerMapper;
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.ProductRepository;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.CustomerQueryService;
+import com.example.store.service.CustomerSearchService;
+import com.example.store.service.OrderQueryService;
+import com.example.store.service.OrderResponseCache;
+import com.example.store.service.ProductQueryService;
+import com.example.store.service.SnapshotTagService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The interceptors as ConditionalRequestConfig registers them, in front of the real controllers. The change versions
+ * come from a mocked JdbcTemplate (no rows, so every tag depends on the resource only).
+ */
+@WebMvcTest(value = {CustomerController.class, ProductController.class, OrderController.class},
+        properties = "store.conditional.version-refresh-interval=PT1M")
+@ComponentScan(basePackageClasses = CustomerMapper.class)
+@Import({ConditionalRequestConfig.class, SnapshotTagService.class})
+class ConditionalRequestConfigTest {
+
+    @Autowired private MockMvc mockMvc;
+
+    @MockitoBean private JdbcTemplate jdbcTemplate;
+    @MockitoBean private CustomerRepository customerRepository;
+    @MockitoBean private ProductRepository productRepository;
+    @MockitoBean private OrderRepository orderRepository;
+    @MockitoBean private CustomerQueryService customerQueryService;
+    @MockitoBean private CustomerSearchService customerSearchService;
+    @MockitoBean private ProductQueryService productQueryService;
+    @MockitoBean private OrderQueryService orderQueryService;
+    @MockitoBean private OrderResponseCache orderResponseCache;
+    @MockitoBean private BulkInsertService bulkInsertService;
+
+    @BeforeEach
+    void setUp() {
+        when(productQueryService.findProductById(7L)).thenReturn(Optional.of(new ProductDTO()));
+        when(orderQueryService.findOrderById(7L)).thenReturn(Optional.of(new OrderDTO()));
+    }
+
+    @Test
+    void unchangedCustomersAreAnsweredWithoutTheQuery() throws Exception {
+        String etag = etagOf("/customer");
+        Mockito.clearInvocations(customerQueryService, customerRepository);
+
+        mockMvc.perform(get("/customer").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        verify(customerQueryService, never()).findAllCustomersWithOrders();
+        verify(customerRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void unchangedProductIsAnsweredWithoutTheQuery() throws Exception {
+        String etag = etagOf("/products/7");
+        Mockito.clearInvocations(productQueryService, productRepository);
+
+        mockMvc.perform(get("/products/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(productQueryService, never()).findProductById(anyLong());
+        verify(productRepository, never()).findDetailRows(anyLong());
+    }
+
+    @Test
+    void unchangedOrderIsAnsweredWithoutTheQuery() throws Exception {
+        String etag = etagOf("/order/7");
+        Mockito.clearInvocations(orderQueryService, orderRepository);
+
+        mockMvc.perform(get("/order/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(orderQueryService, never()).findOrderById(anyLong());
+    }
+
+    @Test
+    void theVersionsAreMemoizedUntilAWrite() throws Exception {
+        String etag = etagOf("/products/7");
+        Mockito.clearInvocations(jdbcTemplate);
+
+        mockMvc.perform(get("/products/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class));
+
+        Customer saved = new Customer();
+        saved.setId(1L);
+        saved.setName("John Doe");
+        when(customerRepository.save(any())).thenReturn(saved);
+        mockMvc.perform(post("/customer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"John Doe\"}"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/products/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class));
+    }
+
+    private String etagOf(String path) throws Exception {
+        return mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.store.controller;
+
+import com.example.store.service.SnapshotTagService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConditionalRequestInterceptorTest {
+
+    private static final List<String> TABLES = List.of("product", "order_product");
+
+    @Mock
+    SnapshotTagService snapshotTagService;
+
+    ConditionalRequestInterceptor interceptor;
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new ConditionalRequestInterceptor(snapshotTagService, TABLES);
+    }
+
+    @Test
+    void unchangedResourceIsAnsweredWith304BeforeTheController() {
+        var snapshot = new SnapshotTagService.Snapshot("\"tag\"", 1000);
+        when(snapshotTagService.forTables(TABLES, "/products/7")).thenReturn(snapshot);
+        when(snapshotTagService.matchesConditional("\"tag\"", -1, snapshot)).thenReturn(true);
+        var request = new MockHttpServletRequest("GET", "/products/7");
+        request.addHeader("If-None-Match", "\"tag\"");
+
+        boolean proceed = interceptor.preHandle(request, response, new Object());
+
+        assertThat(proceed).isFalse();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"tag\"");
+    }
+
+    @Test
+    void changedResourceProceedsWithValidatorsSet() {
+        var snapshot = new SnapshotTagService.Snapshot("\"new\"", 2000);
+        when(snapshotTagService.forTables(TABLES, "/products?limit=10&offset=20")).thenReturn(snapshot);
+        when(snapshotTagService.matchesConditional("\"old\"", -1, snapshot)).thenReturn(false);
+        var request = new MockHttpServletRequest("GET", "/products");
+        request.setQueryString("limit=10&offset=20");
+        request.addHeader("If-None-Match", "\"old\"");
+
+        boolean proceed = interceptor.preHandle(request, response, new Object());
+
+        assertThat(proceed).isTrue();
+        assertThat(response.getHeader("ETag")).isEqualTo("\"new\"");
+        assertThat(response.getDateHeader("Last-Modified")).isEqualTo(2000);
+    }
+
+    @Test
+    void validatorCanComeFromAnotherSource() {
+        // e.g. GET /order/{id} served from the read model, which may lag the tables
+        var view = new SnapshotTagService.Snapshot("\"rm-1-7\"", 3000);
+        when(snapshotTagService.matchesConditional("\"rm-1-7\"", -1, view)).thenReturn(true);
+        interceptor = new ConditionalRequestInterceptor(snapshotTagService, resource -> view);
+        var request = new MockHttpServletRequest("GET", "/order/7");
+        request.addHeader("If-None-Match", "\"rm-1-7\"");
+
+        boolean proceed = interceptor.preHandle(request, response, new Object());
+
+        assertThat(proceed).isFalse();
+        assertThat(response.getHeader("ETag")).isEqualTo("\"rm-1-7\"");
+        verify(snapshotTagService, never()).forTables(any(), any());
+    }
+
+    @Test
+    void writesAreNotIntercepted() {
+        boolean proceed = interceptor.preHandle(new MockHttpServletRequest("POST", "/products"), response, new Object());
+
+        assertThat(proceed).isTrue();
+        verify(snapshotTagService, never()).forTables(any(), any());
+    }
+}
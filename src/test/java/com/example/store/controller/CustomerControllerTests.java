@@ -3,6 +3,12 @@ package com.example.store.controller;
 import com.example.store.entity.Customer;
 import com.example.store.mapper.CustomerMapper;
 import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.projection.CustomerDetailRow;
+import com.example.store.repository.projection.CustomerOrderView;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.CustomerQueryService;
+import com.example.store.service.CustomerSearchService;
+import com.example.store.utils.CursorUtility;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -10,14 +16,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
-import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -25,6 +37,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(CustomerController.class)
 @ComponentScan(basePackageClasses = CustomerMapper.class)
+@Import(CustomerQueryService.class)
 class CustomerControllerTests {
 
     @Autowired
@@ -36,6 +49,12 @@ class CustomerControllerTests {
     @MockitoBean
     private CustomerRepository customerRepository;
 
+    @MockitoBean
+    private CustomerSearchService customerSearchService;
+
+    @MockitoBean
+    private BulkInsertService bulkInsertService;
+
     private Customer customer;
 
     @BeforeEach
@@ -59,30 +78,36 @@ class CustomerControllerTests {
     @Test
     void testGetAllCustomers() throws Exception {
         when(customerRepository.findAll()).thenReturn(List.of(customer));
+        when(customerRepository.findAllCustomerOrders()).thenReturn(List.<CustomerOrderView>of(detail(1L, "John Doe", 7L, "First order")));
 
         mockMvc.perform(get("/customer"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$..name").value("John Doe"));
+                .andExpect(jsonPath("$..name").value("John Doe"))
+                .andExpect(jsonPath("$[0].orders[0].id").value(7));
     }
 
     @Test
     void testGetCustomerById() throws Exception {
-        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerRepository.findDetailRows(1L)).thenReturn(List.of(detail(1L, "John Doe", 7L, "First order")));
         mockMvc.perform(get("/customer/1"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.name").value("John Doe"));
+                .andExpect(jsonPath("$.name").value("John Doe"))
+                .andExpect(jsonPath("$.orders", hasSize(1)))
+                .andExpect(jsonPath("$.orders[0].id").value(7))
+                .andExpect(jsonPath("$.orders[0].description").value("First order"));
+        verify(customerRepository, never()).findById(any());
     }
 
     @Test
     void testGetCustomerByIdNotFound() throws Exception {
-        when(customerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(customerRepository.findDetailRows(1L)).thenReturn(List.of());
         mockMvc.perform(get("/customer/1"))
                 .andExpect(status().isNotFound());
     }
 
     @Test
     void testSearchCustomers() throws Exception {
-        when(customerRepository.findByNameIgnoreCaseContaining("John")).thenReturn(List.of(customer));
+        when(customerSearchService.search("John", CustomerSearchService.Mode.SUBSTRING)).thenReturn(List.of(customer));
         mockMvc.perform(get("/customer/search?name=John"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$..name").value("John Doe"));
@@ -90,11 +115,88 @@ class CustomerControllerTests {
 
     @Test
     void testSearchCustomerNoResults() throws Exception {
-        when(customerRepository.findByNameIgnoreCaseContaining("John")).thenReturn(List.of());
+        when(customerSearchService.search("John", CustomerSearchService.Mode.SUBSTRING)).thenReturn(List.of());
         mockMvc.perform(get("/customer/search?name=John"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isEmpty());
-        verify(customerRepository).findByNameIgnoreCaseContaining("John");
+        verify(customerSearchService).search("John", CustomerSearchService.Mode.SUBSTRING);
+    }
+
+    @Test
+    void testGetCustomersFirstCursorPage() throws Exception {
+        Customer second = new Customer();
+        second.setId(2L);
+        second.setName("Jane Doe");
+        when(customerRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(List.of(customer, second));
+
+        mockMvc.perform(get("/customer?limit=1&cursor="))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("John Doe"))
+                .andExpect(header().doesNotExist("X-Total-Count"))
+                .andExpect(header().string("Link", containsString("cursor=" + CursorUtility.encodeId(1L) + ">; rel=\"next\"")));
+        verify(customerRepository, never()).count();
+    }
+
+    @Test
+    void testGetCustomersLastCursorPageWithTotal() throws Exception {
+        when(customerRepository.findByIdGreaterThan(eq(1L), any(Pageable.class))).thenReturn(List.of(customer));
+        when(customerRepository.count()).thenReturn(2L);
+
+        mockMvc.perform(get("/customer?limit=1&includeTotal=true&cursor=" + CursorUtility.encodeId(1L)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().string("X-Total-Count", "2"))
+                .andExpect(header().string("Link", not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    void testGetCustomersInvalidCursor() throws Exception {
+        mockMvc.perform(get("/customer?limit=1&cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchCustomersByWordPrefix() throws Exception {
+        when(customerSearchService.search("Do", CustomerSearchService.Mode.PREFIX)).thenReturn(List.of(customer));
+
+        mockMvc.perform(get("/customer/search?name=Do&mode=prefix"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("John Doe"));
     }
 
+    @Test
+    void testSearchCustomersInvalidMode() throws Exception {
+        mockMvc.perform(get("/customer/search?name=Do&mode=fuzzy"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static CustomerDetailRow detail(Long customerId, String name, Long orderId, String orderDescription) {
+        return new CustomerDetailRow() {
+            @Override
+            public Long getId() {
+                return customerId;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getCustomerId() {
+                return customerId;
+            }
+
+            @Override
+            public Long getOrderId() {
+                return orderId;
+            }
+
+            @Override
+            public String getOrderDescription() {
+                return orderDescription;
+            }
+        };
+    }
 }
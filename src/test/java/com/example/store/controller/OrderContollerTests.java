@@ -9,7 +9,11 @@ import com.example.store.mapper.CustomerMapper;
 import com.example.store.repository.CustomerRepository;
 import com.example.store.repository.OrderRepository;
 import com.example.store.repository.projection.ProductSummaryView;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.CustomerQueryService;
 import com.example.store.service.OrderQueryService;
+import com.example.store.service.OrderResponseCache;
+import com.example.store.service.ProductQueryService;
 import com.example.store.service.SnapshotTagService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -21,14 +25,28 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -36,6 +54,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(OrderController.class)
 @ComponentScan(basePackageClasses = {CustomerMapper.class})
+@Import(OrderResponseCache.class)
 @RequiredArgsConstructor
 class OrderControllerTests {
 
@@ -57,12 +76,27 @@ class OrderControllerTests {
     @MockitoBean
     private OrderQueryService orderQueryService;
 
+    @MockitoBean
+    private BulkInsertService bulkInsertService;
+
+    @MockitoBean
+    private CustomerQueryService customerQueryService;
+
+    @MockitoBean
+    private ProductQueryService productQueryService;
+
+    @Autowired
+    private OrderResponseCache orderResponseCache;
+
     private Order order;
     private Customer customer;
     private OrderRow row;
 
     @BeforeEach
     void setUp() {
+        // the cache is a singleton of the shared test context and the tests reuse the same tag
+        orderResponseCache.clear();
+
         customer = new Customer();
         customer.setName("John Doe");
         customer.setId(1L);
@@ -116,6 +150,9 @@ class OrderControllerTests {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.description").value("Test Order"))
                 .andExpect(jsonPath("$.customer.name").value("John Doe"));
+
+        // the customer's cached detail lists its orders
+        verify(customerQueryService).evict(1L);
     }
 
     @Test
@@ -136,7 +173,14 @@ class OrderControllerTests {
 
     @Test
     void testGetOrderById() throws Exception {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        OrderCustomerDTO orderCustomer = new OrderCustomerDTO();
+        orderCustomer.setId(1L);
+        orderCustomer.setName("John Doe");
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(1L);
+        orderDTO.setDescription("Test Order");
+        orderDTO.setCustomer(orderCustomer);
+        when(orderQueryService.findOrderById(1L)).thenReturn(Optional.of(orderDTO));
 
         mockMvc.perform(get("/order/1"))
                 .andExpect(status().isOk())
@@ -146,7 +190,7 @@ class OrderControllerTests {
 
     @Test
     void testGetOrderByIdNotFound() throws Exception {
-        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        when(orderQueryService.findOrderById(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/order/1"))
                 .andExpect(status().isNotFound());
@@ -165,7 +209,8 @@ class OrderControllerTests {
         SnapshotTagService.Snapshot snapshot2 = new SnapshotTagService.Snapshot("aTag", 1000);
         when(snapshotTagService.current()).thenReturn(snapshot2);
         when(orderRepository.findAllRows()).thenReturn(List.of(row));
-        when(snapshotTagService.matchesConditional("aTag", 1000, snapshot2)).thenReturn(true);
+        when(snapshotTagService.matchingRepresentation(etag, 1000, snapshot2, snapshot2.forRepresentation("gzip")))
+                .thenReturn(snapshot2);
 
         // second call with validators -> 304
         mockMvc.perform(get("/order")
@@ -189,7 +234,8 @@ class OrderControllerTests {
         Mockito.clearInvocations(snapshotTagService, orderRepository, orderQueryService);
         SnapshotTagService.Snapshot snapshot2 = new SnapshotTagService.Snapshot("eTag2", 1000);
         when(snapshotTagService.current()).thenReturn(snapshot2);
-        when(snapshotTagService.matchesConditional("aTag", 1000, snapshot2)).thenReturn(false);
+        when(snapshotTagService.matchingRepresentation(etag, -1, snapshot2, snapshot2.forRepresentation("gzip")))
+                .thenReturn(null);
         mockMvc.perform(get("/order").header("If-None-Match", etag))
                 .andExpect(status().isOk())
                 .andExpect(header().exists("ETag"))
@@ -197,4 +243,208 @@ class OrderControllerTests {
 
         verify(orderQueryService).findAllOrdersWithProducts();
     }
+
+    @Test
+    void streamsOrdersAsNdjson() throws Exception {
+        when(snapshotTagService.current()).thenReturn(new SnapshotTagService.Snapshot("aTag", 1000));
+        OrderDTO first = new OrderDTO();
+        first.setId(1L);
+        first.setDescription("Test Order");
+        OrderDTO second = new OrderDTO();
+        second.setId(2L);
+        second.setDescription("Other Order");
+        doAnswer(inv -> {
+            Consumer<OrderDTO> sink = inv.getArgument(0);
+            sink.accept(first);
+            sink.accept(second);
+            return null;
+        }).when(orderQueryService).streamAllOrdersWithProducts(any());
+
+        var started = mockMvc.perform(get("/order").accept(OrderController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"aTag-ndjson\""))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andExpect(content().contentTypeCompatibleWith(OrderController.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], OrderDTO.class).getDescription()).isEqualTo("Test Order");
+        assertThat(objectMapper.readValue(lines[1], OrderDTO.class).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    void fetchAllIsJsonUnlessNdjsonIsAsked() throws Exception {
+        when(snapshotTagService.current()).thenReturn(new SnapshotTagService.Snapshot("aTag", 1000));
+        when(orderQueryService.findAllOrdersWithProducts()).thenReturn(List.of());
+
+        mockMvc.perform(get("/order").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/order?limit=1").accept(OrderController.APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void getsPagedOrdersFromProjection() throws Exception {
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(1L);
+        orderDTO.setDescription("Test Order");
+        var pageable = PageRequest.of(0, 1);
+        when(orderQueryService.findOrderPage(pageable)).thenReturn(new PageImpl<>(List.of(orderDTO), pageable, 3));
+
+        mockMvc.perform(get("/order?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().exists("Link"))
+                .andExpect(jsonPath("$[0].description").value("Test Order"));
+
+        verify(orderRepository, Mockito.never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void servesUnchangedSnapshotFromCachedBytes() throws Exception {
+        when(snapshotTagService.current()).thenReturn(new SnapshotTagService.Snapshot("aTag", 1000));
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(1L);
+        orderDTO.setDescription("Test Order");
+        when(orderQueryService.findAllOrdersWithProducts()).thenReturn(List.of(orderDTO));
+
+        String first = mockMvc.perform(get("/order"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String second = mockMvc.perform(get("/order"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].description").value("Test Order"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(second).isEqualTo(first);
+        // no rebuild for a client that does not send If-None-Match either
+        verify(orderQueryService, times(1)).findAllOrdersWithProducts();
+    }
+
+    @Test
+    void servesPreCompressedBytesWhenGzipIsAccepted() throws Exception {
+        when(snapshotTagService.current()).thenReturn(new SnapshotTagService.Snapshot("aTag", 1000));
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(1L);
+        orderDTO.setDescription("Test Order");
+        when(orderQueryService.findAllOrdersWithProducts()).thenReturn(List.of(orderDTO));
+
+        byte[] body = mockMvc.perform(get("/order").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "\"aTag-gzip\""))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(objectMapper.readValue(json, OrderDTO[].class)[0].getDescription()).isEqualTo("Test Order");
+        }
+    }
+
+    @Test
+    void gzipWithZeroWeightIsARefusal() throws Exception {
+        when(snapshotTagService.current()).thenReturn(new SnapshotTagService.Snapshot("aTag", 1000));
+        when(orderQueryService.findAllOrdersWithProducts()).thenReturn(List.of(new OrderDTO()));
+
+        mockMvc.perform(get("/order").header("Accept-Encoding", "GZIP;q=0, *;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("ETag", "\"aTag\""));
+        mockMvc.perform(get("/order").header("Accept-Encoding", "br, *;q=0.5"))
+                .andExpect(header().string("Content-Encoding", "gzip"));
+    }
+
+    @Test
+    void gzipTagIsConfirmedWithItself() throws Exception {
+        SnapshotTagService.Snapshot snapshot = new SnapshotTagService.Snapshot("\"aTag\"", 1000);
+        SnapshotTagService.Snapshot gzipped = snapshot.forRepresentation("gzip");
+        when(snapshotTagService.current()).thenReturn(snapshot);
+        when(snapshotTagService.matchingRepresentation(gzipped.etag(), -1, snapshot, gzipped)).thenReturn(gzipped);
+
+        mockMvc.perform(get("/order").header("If-None-Match", gzipped.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"aTag-gzip\""));
+        verify(orderQueryService, Mockito.never()).findAllOrdersWithProducts();
+    }
+
+    @Test
+    void bulkCreatesJsonArray() throws Exception {
+        when(bulkInsertService.insertOrders(any())).thenAnswer(inv -> drain(inv.getArgument(0), 10L));
+
+        mockMvc.perform(post("/order/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(bulkOrder("A"), bulkOrder("B")))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.ids[0]").value(10))
+                .andExpect(jsonPath("$.ids[1]").value(11));
+    }
+
+    @Test
+    void bulkCreatesNdjsonLines() throws Exception {
+        List<String> descriptions = new ArrayList<>();
+        when(bulkInsertService.insertOrders(any())).thenAnswer(inv -> {
+            Iterator<OrderDTO> orders = inv.getArgument(0);
+            List<Long> ids = new ArrayList<>();
+            orders.forEachRemaining(o -> {
+                descriptions.add(o.getDescription());
+                ids.add(20L + ids.size());
+            });
+            return ids;
+        });
+        String body = objectMapper.writeValueAsString(bulkOrder("A")) + "\n"
+                + objectMapper.writeValueAsString(bulkOrder("B")) + "\n";
+
+        mockMvc.perform(post("/order/bulk").contentType(OrderController.APPLICATION_NDJSON_VALUE).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.count").value(2));
+        assertThat(descriptions).containsExactly("A", "B");
+    }
+
+    @Test
+    void bulkCreateRejectsMalformedNdjsonLine() throws Exception {
+        when(bulkInsertService.insertOrders(any())).thenAnswer(inv -> drain(inv.getArgument(0), 1L));
+
+        mockMvc.perform(post("/order/bulk")
+                        .contentType(OrderController.APPLICATION_NDJSON_VALUE)
+                        .content(objectMapper.writeValueAsString(bulkOrder("A")) + "\n{\"description\": \n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkCreateReportsConflict() throws Exception {
+        when(bulkInsertService.insertOrders(any())).thenThrow(new DataIntegrityViolationException("fk"));
+
+        mockMvc.perform(post("/order/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(bulkOrder("A")))))
+                .andExpect(status().isConflict());
+    }
+
+    private static OrderDTO bulkOrder(String description) {
+        OrderCustomerDTO customer = new OrderCustomerDTO();
+        customer.setId(1L);
+        OrderDTO order = new OrderDTO();
+        order.setDescription(description);
+        order.setCustomer(customer);
+        return order;
+    }
+
+    // consumes the payload like the real service and hands out consecutive ids
+    private static List<Long> drain(Iterator<?> rows, long firstId) {
+        List<Long> ids = new ArrayList<>();
+        while (rows.hasNext()) {
+            rows.next();
+            ids.add(firstId + ids.size());
+        }
+        return ids;
+    }
 }
@@ -4,6 +4,10 @@ import com.example.store.api.dto.ProductCreateDTO;
 import com.example.store.entity.Product;
 import com.example.store.mapper.ProductMapper;
 import com.example.store.repository.ProductRepository;
+import com.example.store.repository.projection.ProductDetailRow;
+import com.example.store.repository.projection.ProductOrderView;
+import com.example.store.service.BulkInsertService;
+import com.example.store.service.ProductQueryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -19,7 +24,6 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
-import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
@@ -30,6 +34,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(ProductController.class)
 @ComponentScan(basePackageClasses = ProductMapper.class)
+@Import(ProductQueryService.class)
 class ProductControllerTests {
 
     @Autowired private MockMvc mockMvc;
@@ -38,6 +43,9 @@ class ProductControllerTests {
     @MockitoBean
     private ProductRepository productRepository;
 
+    @MockitoBean
+    private BulkInsertService bulkInsertService;
+
     private Product p1;
     private Product p2;
 
@@ -108,8 +116,8 @@ class ProductControllerTests {
     @Test
     @SneakyThrows
     void getProductById_ok200() {
-        when(productRepository.findWithOrdersById(100L)).thenReturn(Optional.of(p1));
-        when(productRepository.findOrderIdsByProductId(100L)).thenReturn(List.of(1L, 2L));
+        when(productRepository.findDetailRows(100L))
+                .thenReturn(List.of(detail(100L, "Widget", 1L), detail(100L, "Widget", 2L)));
 
         mockMvc.perform(get("/products/100"))
                 .andExpect(status().isOk())
@@ -121,10 +129,20 @@ class ProductControllerTests {
                 .andExpect(jsonPath("$.orders[1]").value(2));
     }
 
+    @Test
+    @SneakyThrows
+    void getProductById_withoutOrders_emptyList() {
+        when(productRepository.findDetailRows(100L)).thenReturn(List.of(detail(100L, "Widget", null)));
+
+        mockMvc.perform(get("/products/100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders", hasSize(0)));
+    }
+
     @Test
     @SneakyThrows
     void getProductById_notFound404() {
-        when(productRepository.findWithOrdersById(999L)).thenReturn(Optional.empty());
+        when(productRepository.findDetailRows(999L)).thenReturn(List.of());
 
         mockMvc.perform(get("/products/999"))
                 .andExpect(status().isNotFound());
@@ -136,8 +154,8 @@ class ProductControllerTests {
     @SneakyThrows
     void getProducts_all_ok200_withTotalHeader() {
         when(productRepository.findAll()).thenReturn(List.of(p1, p2));
-        when(productRepository.findOrderIdsByProductId(100L)).thenReturn(List.of(1L));
-        when(productRepository.findOrderIdsByProductId(200L)).thenReturn(List.of(1L, 2L));
+        when(productRepository.findAllProductOrderIds())
+                .thenReturn(List.of(pair(100L, 1L), pair(200L, 1L), pair(200L, 2L)));
 
         mockMvc.perform(get("/products"))
                 .andExpect(status().isOk())
@@ -159,7 +177,7 @@ class ProductControllerTests {
         PageRequest pr = PageRequest.of(0, 1);
         Page<Product> page0 = new PageImpl<>(List.of(p1), pr, 2); // total=2
         when(productRepository.findAll(any(PageRequest.class))).thenReturn(page0);
-        when(productRepository.findOrderIdsByProductId(100L)).thenReturn(List.of(42L));
+        when(productRepository.findOrderIdsByProductIds(List.of(100L))).thenReturn(List.of(pair(100L, 42L)));
 
         mockMvc.perform(get("/products?limit=1&offset=0"))
                 .andExpect(status().isOk())
@@ -172,4 +190,37 @@ class ProductControllerTests {
                 .andExpect(jsonPath("$[0].orders", hasSize(1)))
                 .andExpect(jsonPath("$[0].orders[0]").value(42));
     }
+
+    private static ProductDetailRow detail(Long id, String description, Long orderId) {
+        return new ProductDetailRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public Long getOrderId() {
+                return orderId;
+            }
+        };
+    }
+
+    private static ProductOrderView pair(Long productId, Long orderId) {
+        return new ProductOrderView() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getOrderId() {
+                return orderId;
+            }
+        };
+    }
 }
@@ -0,0 +1,134 @@
+package com.example.store.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The snapshot hand-over of ParallelSnapshotReader on a real Postgres (ParallelSnapshotReaderTest covers the rest on
+ * H2). Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ParallelSnapshotReaderPostgresTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    DriverManagerDataSource dataSource = dataSource(postgres.getDatabaseName());
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    // a DataSource of its own, so its statements never join the reads' transactions
+    JdbcTemplate writer = new JdbcTemplate(dataSource(postgres.getDatabaseName()));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeAll
+    static void createSecondDatabase() {
+        new JdbcTemplate(dataSource(postgres.getDatabaseName())).execute("create database other");
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (JdbcTemplate db : List.of(jdbcTemplate, new JdbcTemplate(dataSource("other")))) {
+            db.execute("drop table if exists public.item");
+            db.execute("create table public.item (id bigint primary key)");
+            db.update("insert into public.item values (1), (2), (3)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void secondReadSeesTheFirstReadsSnapshotWhenAWriteCommitsInBetween() {
+        ParallelSnapshotReader reader = new ParallelSnapshotReader(
+                new DataSourceTransactionManager(dataSource), jdbcTemplate, executor, true, Duration.ofSeconds(5));
+        CountDownLatch written = new CountDownLatch(1);
+
+        List<Long> counts = reader.read(() -> {
+            long count = count(jdbcTemplate);
+            writer.update("insert into public.item values (4)");
+            written.countDown();
+            return count;
+        }, () -> {
+            await(written);
+            return count(jdbcTemplate);
+        }, List::of);
+
+        // the insert committed before the second query, which still only sees the exported snapshot
+        assertThat(counts).containsExactly(3L, 3L);
+        assertThat(count(writer)).isEqualTo(4);
+    }
+
+    @Test
+    void failedImportFallsBackToReadingSequentially() {
+        // the importing connection ends up in another database, like a read routed to another server: the import
+        // fails, and both reads are repeated in one transaction
+        AtomicInteger connections = new AtomicInteger();
+        DataSource other = dataSource("other");
+        DataSource split = new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connections.incrementAndGet() == 2 ? other.getConnection() : dataSource.getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+        JdbcTemplate splitTemplate = new JdbcTemplate(split);
+        ParallelSnapshotReader reader = new ParallelSnapshotReader(
+                new DataSourceTransactionManager(split), splitTemplate, executor, true, Duration.ofSeconds(5));
+        writer.update("insert into public.item values (4)");
+        AtomicInteger secondReads = new AtomicInteger();
+
+        List<Long> counts = reader.read(() -> count(splitTemplate), () -> {
+            secondReads.incrementAndGet();
+            return count(splitTemplate);
+        }, List::of);
+
+        assertThat(counts).containsExactly(4L, 4L); // both from the main database
+        assertThat(connections).hasValue(3);
+        assertThat(secondReads).hasValue(1);
+    }
+
+    private static long count(JdbcTemplate db) {
+        return db.queryForObject("select count(*) from public.item", Long.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DriverManagerDataSource dataSource(String database) {
+        String url = postgres.getJdbcUrl().replaceFirst("/[^/?]+(\\?|$)", "/" + database + "$1");
+        return new DriverManagerDataSource(url, postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.store.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ParallelSnapshotReader on H2, which cannot export snapshots, so the parallel reads run without the hand-over; the
+ * snapshot sharing itself needs PostgreSQL. Whether the reads overlap is checked with latches rather than timings.
+ */
+class ParallelSnapshotReaderTest {
+
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:parallel_read;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    ParallelSnapshotReader parallel =
+            new ParallelSnapshotReader(transactionManager, jdbcTemplate, executor, false, Duration.ofSeconds(5));
+    ParallelSnapshotReader sequential = ParallelSnapshotReader.sequential(transactionManager);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("drop table if exists public.item");
+        jdbcTemplate.execute("create table public.item (id bigint primary key)");
+        jdbcTemplate.update("insert into public.item values (1), (2), (3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        ReplicaRouting.clear();
+    }
+
+    @Test
+    void parallelReadsOverlap() {
+        // each read waits for the other to have started, which only returns true when they run at the same time
+        CountDownLatch bothStarted = new CountDownLatch(2);
+
+        List<Boolean> overlapped = parallel.read(() -> meet(bothStarted), () -> meet(bothStarted), List::of);
+
+        assertThat(overlapped).containsExactly(true, true);
+    }
+
+    @Test
+    void sequentialReadsDoNotOverlap() {
+        AtomicBoolean firstDone = new AtomicBoolean();
+
+        boolean secondSawFirstDone = sequential.read(() -> {
+            query();
+            firstDone.set(true);
+            return null;
+        }, firstDone::get, (a, b) -> b);
+
+        assertThat(secondSawFirstDone).isTrue();
+    }
+
+    @Test
+    void eachParallelReadHasItsOwnReadOnlyRepeatableReadTransaction() {
+        List<Transaction> result = parallel.read(this::transaction, this::transaction, List::of);
+
+        Transaction first = result.get(0);
+        Transaction second = result.get(1);
+        assertThat(result).allSatisfy(tx -> {
+            assertThat(tx.readOnly()).isTrue();
+            assertThat(tx.isolation()).isEqualTo(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        });
+        assertThat(first.session()).isNotEqualTo(second.session());
+        assertThat(first.thread()).isNotEqualTo(second.thread());
+    }
+
+    @Test
+    void sequentialReadsShareOneTransaction() {
+        List<Transaction> result = sequential.read(this::transaction, this::transaction, List::of);
+
+        assertThat(result.get(0)).isEqualTo(result.get(1));
+        assertThat(result.get(0).readOnly()).isTrue();
+    }
+
+    @Test
+    void failureOfEitherReadIsRethrown() {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        assertThatThrownBy(() -> parallel.read(() -> { throw failure; }, () -> query(), (a, b) -> a))
+                .isSameAs(failure);
+        assertThatThrownBy(() -> parallel.read(() -> query(), () -> { throw failure; }, (a, b) -> a))
+                .isSameAs(failure);
+    }
+
+    @Test
+    void primaryPinIsCarriedToBothReads() {
+        List<Boolean> pinned = ReplicaRouting.callOnPrimary(() -> parallel.read(
+                ReplicaRouting::isPinnedToPrimary, ReplicaRouting::isPinnedToPrimary, List::of));
+
+        assertThat(pinned).containsExactly(true, true);
+    }
+
+    @Test
+    void rejectedFirstReadFallsBackToSequential() {
+        ParallelSnapshotReader saturated = new ParallelSnapshotReader(transactionManager, jdbcTemplate,
+                task -> { throw new TaskRejectedException("queue full"); }, false, Duration.ofSeconds(5));
+
+        List<Transaction> result = saturated.read(this::transaction, this::transaction, List::of);
+
+        assertThat(result.get(0)).isEqualTo(result.get(1));
+    }
+
+    @Test
+    void firstReadThatDidNotStartInTimeNeverRuns() {
+        List<Runnable> queued = new ArrayList<>();
+        ParallelSnapshotReader stalled = new ParallelSnapshotReader(transactionManager, jdbcTemplate,
+                queued::add, false, Duration.ofMillis(100));
+        AtomicInteger firstReads = new AtomicInteger();
+
+        List<Transaction> result = stalled.read(() -> {
+            firstReads.incrementAndGet();
+            return transaction();
+        }, this::transaction, List::of);
+        queued.forEach(Runnable::run);
+
+        assertThat(result.get(0)).isEqualTo(result.get(1));
+        assertThat(firstReads).hasValue(1);
+    }
+
+    private boolean meet(CountDownLatch latch) {
+        query();
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<Long> query() {
+        return jdbcTemplate.queryForList("select id from public.item order by id", Long.class);
+    }
+
+    private record Transaction(boolean readOnly, Integer isolation, Integer session, String thread) {}
+
+    private Transaction transaction() {
+        return new Transaction(
+                TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                TransactionSynchronizationManager.getCurrentTransactionIsolationLevel(),
+                jdbcTemplate.queryForObject("select session_id()", Integer.class),
+                Thread.currentThread().getName());
+    }
+}
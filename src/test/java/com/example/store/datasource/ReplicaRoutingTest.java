@@ -0,0 +1,209 @@
+package com.example.store.datasource;
+
+import com.example.store.service.SnapshotTagService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two H2 databases stand in for the primary and the replica, wired the way ReplicaDataSourceConfig wires the real
+ * pools. Each holds a one row {@code source} table naming it, so a read shows where it was routed; replication is
+ * simulated by bumping the change_version counters by hand.
+ */
+class ReplicaRoutingTest {
+
+    static final Duration MAX_LAG = Duration.ofSeconds(5);
+
+    DataSource primary = database("routing_primary");
+    DataSource replica = database("routing_replica");
+    MutableClock clock = new MutableClock();
+    ReplicaLagMonitor monitor = new ReplicaLagMonitor(new JdbcTemplate(primary), new JdbcTemplate(replica), MAX_LAG, clock);
+
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readOnly;
+    TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        for (DataSource db : List.of(primary, replica)) {
+            JdbcTemplate jdbc = new JdbcTemplate(db);
+            jdbc.execute("drop table if exists public.change_version");
+            jdbc.execute("drop table if exists public.source");
+            jdbc.execute("""
+                create table public.change_version (
+                  table_name varchar(63) primary key,
+                  version bigint default 0 not null,
+                  updated_at timestamp with time zone default current_timestamp not null)
+                """);
+            jdbc.update("insert into public.change_version (table_name) values ('order'), ('customer')");
+            jdbc.execute("create table public.source (name varchar(16))");
+            jdbc.update("insert into public.source values (?)", db == primary ? "primary" : "replica");
+        }
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica, monitor));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRouting.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        monitor.check();
+
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(readOnlySource()).isEqualTo("replica");
+        assertThat(readWriteSource()).isEqualTo("primary");
+        assertThat(source()).isEqualTo("primary"); // no transaction, e.g. the snapshot tag lookup
+    }
+
+    @Test
+    void everythingGoesToThePrimaryUntilTheReplicaHasBeenChecked() {
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(readOnlySource()).isEqualTo("primary");
+    }
+
+    @Test
+    void pinnedThreadsReadThePrimary() {
+        monitor.check();
+
+        assertThat(ReplicaRouting.callOnPrimary(() -> readOnlySource())).isEqualTo("primary");
+        assertThat(ReplicaRouting.isPinnedToPrimary()).isFalse();
+        assertThat(readOnlySource()).isEqualTo("replica");
+    }
+
+    @Test
+    void replicaIsBypassedWhileItLagsMoreThanMaxLag() {
+        monitor.check();
+        bump(primary, "order");
+
+        clock.advance(Duration.ofSeconds(2));
+        monitor.check();
+        assertThat(monitor.isAvailable()).isTrue(); // behind, but within max-lag
+        assertThat(monitor.lag()).isEqualTo(Duration.ofSeconds(2));
+
+        clock.advance(Duration.ofSeconds(4));
+        monitor.check();
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(readOnlySource()).isEqualTo("primary");
+
+        bump(replica, "order");
+        clock.advance(Duration.ofSeconds(1));
+        monitor.check();
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(monitor.lag()).isZero();
+        assertThat(readOnlySource()).isEqualTo("replica");
+    }
+
+    @Test
+    void unreachableReplicaIsBypassed() {
+        monitor.check();
+        new JdbcTemplate(replica).execute("drop table public.change_version");
+
+        monitor.check();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(readOnlySource()).isEqualTo("primary");
+    }
+
+    @Test
+    void caughtUpComparesWithTheReplicaCountersOfTheLastCheck() {
+        bump(replica, "order");
+        monitor.check();
+
+        assertThat(monitor.isCaughtUp(Map.of("order", 1L, "customer", 0L))).isTrue();
+        assertThat(monitor.isCaughtUp(Map.of("customer", 1L))).isFalse();
+        assertThat(monitor.isCaughtUp(Map.of("product", 0L))).isFalse(); // not replicated at all
+    }
+
+    @Test
+    void snapshotTagPinsTheRequestWhenTheReplicaIsBehindOnItsTables() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("replicaLagMonitor", monitor));
+        SnapshotTagService snapshotTagService = new SnapshotTagService(
+                jdbcTemplate, beans.getBeanProvider(ReplicaLagMonitor.class), Duration.ofMinutes(1));
+        monitor.check();
+
+        snapshotTagService.forTables(List.of("order"));
+        assertThat(ReplicaRouting.isPinnedToPrimary()).isFalse();
+
+        bump(primary, "customer");
+        snapshotTagService.refresh();
+        snapshotTagService.forTables(List.of("order"));
+        assertThat(ReplicaRouting.isPinnedToPrimary()).isFalse(); // customer is not part of this tag
+
+        snapshotTagService.forTables(List.of("customer", "order"));
+        assertThat(ReplicaRouting.isPinnedToPrimary()).isTrue();
+        assertThat(readOnlySource()).isEqualTo("primary");
+    }
+
+    // typed, so assertThat picks its String overload
+    private String readOnlySource() {
+        return readOnly.execute(status -> source());
+    }
+
+    private String readWriteSource() {
+        return readWrite.execute(status -> source());
+    }
+
+    private String source() {
+        return jdbcTemplate.queryForObject("select name from public.source", String.class);
+    }
+
+    private static void bump(DataSource db, String table) {
+        new JdbcTemplate(db).update(
+                "update public.change_version set version = version + 1, updated_at = current_timestamp where table_name = ?",
+                table);
+    }
+
+    private static DataSource database(String name) {
+        return new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
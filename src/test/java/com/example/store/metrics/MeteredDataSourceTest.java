@@ -0,0 +1,105 @@
+package com.example.store.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MeteredDataSourceTest {
+
+    MeteredDataSource dataSource = new MeteredDataSource(new DriverManagerDataSource(
+            "jdbc:h2:mem:metered;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("drop table if exists public.item");
+        jdbcTemplate.execute("create table public.item (id bigint primary key)");
+        dataSource.bindTo(registry);
+    }
+
+    @Test
+    void countsStatementsByTypeAndRowsRead() {
+        jdbcTemplate.update("insert into public.item values (1), (2), (3)");
+        jdbcTemplate.batchUpdate("insert into public.item values (?)", List.of(new Object[] {4L}, new Object[] {5L}));
+        List<Long> ids = jdbcTemplate.queryForList("select id from public.item order by id", Long.class);
+        jdbcTemplate.queryForObject("select count(*) from public.item", Long.class);
+
+        assertThat(ids).hasSize(5);
+        assertThat(statements("update")).isEqualTo(1);
+        assertThat(statements("batch")).isEqualTo(1);
+        assertThat(statements("query")).isEqualTo(2);
+        assertThat(rows()).isEqualTo(6);
+    }
+
+    @Test
+    void rowsOfAResultSetClosedEarlyAreCounted() throws Exception {
+        jdbcTemplate.update("insert into public.item values (1), (2), (3)");
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select id from public.item")) {
+            rs.next();
+            rs.next();
+            assertThat(rows()).isZero();
+        }
+
+        assertThat(rows()).isEqualTo(2);
+    }
+
+    @Test
+    void statementsAndResultSetsHandBackTheMeteredProxies() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select id from public.item")) {
+            assertThat(statement.getConnection()).isSameAs(connection);
+            assertThat(rs.getStatement()).isSameAs(statement);
+
+            // work done through them is still counted
+            rs.getStatement().getConnection().createStatement().executeUpdate("insert into public.item values (1)");
+        }
+
+        assertThat(statements("query")).isEqualTo(1);
+        assertThat(statements("update")).isEqualTo(1);
+    }
+
+    @Test
+    void wrappedConnectionsWorkWithSpringTransactions() {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("insert into public.item values (1)");
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from public.item", Long.class)).isZero();
+    }
+
+    @Test
+    void driverExceptionsAreRethrownUnwrapped() {
+        // so Spring can still translate them
+        assertThatThrownBy(() -> jdbcTemplate.queryForList("select nope from public.item"))
+                .isInstanceOf(BadSqlGrammarException.class);
+    }
+
+    private double statements(String type) {
+        return registry.get("store.jdbc.statements").tag("type", type).functionCounter().count();
+    }
+
+    private double rows() {
+        return registry.get("store.jdbc.rows").functionCounter().count();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.store.repository;
+
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CustomerRepositoryBatchInsertTest {
+
+    @Autowired EntityManager em;
+    @Autowired CustomerRepository customerRepository;
+
+    @BeforeEach
+    void setup() {
+        SqlStatementCapture.clear();
+    }
+
+    @Test
+    @DisplayName("Saving customers with cascaded orders takes one sequence call per table and batches the inserts")
+    void cascadedSaveIsBatched() {
+        List<Customer> customers = IntStream.rangeClosed(1, 3).mapToObj(i -> customer("Customer " + i, 2)).toList();
+
+        customerRepository.saveAll(customers);
+        em.flush();
+
+        List<String> sql = SqlStatementCapture.statements().stream().map(String::toLowerCase).toList();
+        assertThat(sql).filteredOn(s -> s.contains("customer_id_seq")).hasSize(1);
+        assertThat(sql).filteredOn(s -> s.contains("order_id_seq")).hasSize(1);
+        // prepared once per batch rather than once per row
+        assertThat(sql).filteredOn(s -> s.startsWith("insert into \"customer\"")).hasSize(1);
+        assertThat(sql).filteredOn(s -> s.startsWith("insert into \"order\"")).hasSize(1);
+
+        List<Long> ids = customers.stream().map(Customer::getId).toList();
+        assertThat(ids.get(1)).isEqualTo(ids.get(0) + 1);
+        assertThat(ids.get(2)).isEqualTo(ids.get(0) + 2);
+    }
+
+    private static Customer customer(String name, int orders) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        for (int i = 1; i <= orders; i++) {
+            Order order = new Order();
+            order.setDescription(name + " order " + i);
+            order.setCustomer(customer);
+            customer.getOrders().add(order);
+        }
+        return customer;
+    }
+}
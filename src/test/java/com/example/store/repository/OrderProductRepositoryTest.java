@@ -4,6 +4,8 @@ import com.example.store.entity.Order;
 import com.example.store.entity.Product;
 import com.example.store.entity.Customer; // adjust if your package differs
 import com.example.store.repository.projection.OrderRow;
+import com.example.store.repository.projection.ProductDetailRow;
+import com.example.store.repository.projection.ProductOrderView;
 import com.example.store.repository.projection.ProductSummaryView;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import jakarta.persistence.EntityManager;
@@ -21,7 +24,7 @@ import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
 @ActiveProfiles("test")
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class OrderProductRepositoryTest {
@@ -85,24 +88,16 @@ class OrderProductRepositoryTest {
     }
 
     @Test
-    @DisplayName("ProductRepository.findOrderIdsByProductId returns correct order IDs")
-    void productOrderIds() {
-        var p1Orders = productRepository.findOrderIdsByProductId(p1Id);
-        var p2Orders = productRepository.findOrderIdsByProductId(p2Id);
+    @DisplayName("ProductRepository.findDetailRows returns the product and its order ids in one statement")
+    void productDetailInOneStatement() {
+        SqlStatementCapture.clear();
 
-        assertThat(p1Orders).containsExactly(order1Id);                 // p1 only in o1
-        assertThat(p2Orders).containsExactlyInAnyOrder(order1Id, order2Id); // p2 in both
-    }
+        var rows = productRepository.findDetailRows(p2Id);
 
-    @Test
-    @DisplayName("ProductRepository.findWithOrdersById eagerly loads orders")
-    void productWithOrders() {
-        var opt = productRepository.findWithOrdersById(p2Id);
-        assertThat(opt).isPresent();
-        var p2Loaded = opt.get();
-        // Within @DataJpaTest transaction, LAZY is fine, but EntityGraph should prefetch anyway
-        assertThat(p2Loaded.getOrders().stream().map(Order::getId).toList())
-                .containsExactlyInAnyOrder(order1Id, order2Id);
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+        assertThat(rows).extracting(ProductDetailRow::getDescription).containsOnly("Gadget");
+        assertThat(rows).extracting(ProductDetailRow::getOrderId).containsExactlyInAnyOrder(order1Id, order2Id);
+        assertThat(productRepository.findDetailRows(-1L)).isEmpty();
     }
 
     @Test
@@ -137,4 +132,46 @@ class OrderProductRepositoryTest {
         assertThat(productsByOrder.get(order2Id))
                 .containsExactlyInAnyOrder(p2Id);
     }
+
+    @Test
+    @DisplayName("OrderRepository keyset pages walk (createdAt desc, id desc) without gaps or repeats")
+    void orderKeysetPages() {
+        var firstPage = orderRepository.findFirstPage(PageRequest.of(0, 1));
+        assertThat(firstPage).hasSize(1);
+
+        var last = firstPage.get(0);
+        var secondPage = orderRepository.findPageAfter(last.getCreatedAt(), last.getId(), PageRequest.of(0, 1));
+        assertThat(secondPage).hasSize(1);
+        assertThat(List.of(last.getId(), secondPage.get(0).getId())).containsExactlyInAnyOrder(order1Id, order2Id);
+
+        var tail = secondPage.get(0);
+        assertThat(orderRepository.findPageAfter(tail.getCreatedAt(), tail.getId(), PageRequest.of(0, 1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("OrderRepository page queries return a page of rows and only that page's products")
+    void orderPageWithProducts() {
+        var page = orderRepository.findPageRows(PageRequest.of(0, 1));
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent().get(0).getCustomerName()).isEqualTo("Acme Co");
+
+        var products = orderRepository.findOrderProductsByOrderIds(List.of(order2Id));
+        assertThat(products).extracting(ProductSummaryView::getOrderId).containsOnly(order2Id);
+        assertThat(products).extracting(ProductSummaryView::getProductId).containsExactly(p2Id);
+    }
+
+    @Test
+    @DisplayName("ProductRepository.findOrderIdsByProductIds returns the order ids of several products in one query")
+    void productOrderIdsBatch() {
+        var pairs = productRepository.findOrderIdsByProductIds(List.of(p1Id, p2Id));
+
+        Map<Long, List<Long>> orderIdsByProduct = pairs.stream()
+                .collect(Collectors.groupingBy(
+                        ProductOrderView::getProductId,
+                        Collectors.mapping(ProductOrderView::getOrderId, Collectors.toList())
+                ));
+        assertThat(orderIdsByProduct.get(p1Id)).containsExactly(order1Id);
+        assertThat(orderIdsByProduct.get(p2Id)).containsExactlyInAnyOrder(order1Id, order2Id);
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.store.repository;
+
+import com.example.store.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductRepositoryPagingTest {
+
+    @Autowired EntityManager em;
+    @Autowired ProductRepository productRepository;
+
+    @BeforeEach
+    void setup() {
+        em.persist(Product.builder().description("Widget").build());
+        em.persist(Product.builder().description("Gadget").build());
+        em.persist(Product.builder().description("Gizmo").build());
+        em.flush();
+        em.clear();
+        SqlStatementCapture.clear();
+    }
+
+    @Test
+    @DisplayName("ProductRepository.findAll(Pageable) limits in SQL instead of paginating a fetch join in memory")
+    void pageIsLimitedInTheDatabase() {
+        var page = productRepository.findAll(PageRequest.of(0, 2, Sort.by("id")));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+
+        var pageQuery = SqlStatementCapture.statements().stream()
+                .map(String::toLowerCase)
+                .filter(sql -> !sql.contains("count("))
+                .findFirst()
+                .orElseThrow();
+        assertThat(pageQuery).containsAnyOf("limit", "fetch first");
+        assertThat(pageQuery).doesNotContain("order_product");
+    }
+}
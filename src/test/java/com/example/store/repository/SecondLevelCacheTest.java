@@ -0,0 +1,138 @@
+package com.example.store.repository;
+
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The second-level cache with the production settings (JCache regions from ehcache.xml). Runs without a test
+ * transaction so every repository call commits, as it would in the application, and cache puts on commit happen.
+ */
+@DataJpaTest(properties = {
+        SqlStatementCapture.PROPERTY,
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=org.ehcache.jsr107.EhcacheCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.uri=ehcache.xml"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ProductRepository productRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired OrderRepository orderRepository;
+
+    TransactionTemplate tx;
+    Long productId;
+    Long customerId;
+    Long orderId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        Product product = productRepository.save(Product.builder().description("Widget").build());
+        Customer customer = new Customer();
+        customer.setName("Acme Co");
+        customer = customerRepository.save(customer);
+        Order order = new Order();
+        order.setDescription("Order A");
+        order.setCustomer(customer);
+        order.getProducts().add(product);
+        order = orderRepository.save(order);
+
+        productId = product.getId();
+        customerId = customer.getId();
+        orderId = order.getId();
+        entityManagerFactory.getCache().evictAll();
+        SqlStatementCapture.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        productRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    @DisplayName("Repeated findById of a product or customer is answered from the cache")
+    void repeatedLookupsIssueNoSql() {
+        productRepository.findById(productId).orElseThrow();
+        customerRepository.findById(customerId).orElseThrow();
+        int afterFirst = SqlStatementCapture.statements().size();
+
+        assertThat(productRepository.findById(productId)).get().extracting(Product::getDescription).isEqualTo("Widget");
+        assertThat(customerRepository.findById(customerId)).get().extracting(Customer::getName).isEqualTo("Acme Co");
+
+        assertThat(afterFirst).isEqualTo(2);
+        assertThat(SqlStatementCapture.statements()).hasSize(afterFirst);
+    }
+
+    @Test
+    @DisplayName("An update through Hibernate replaces the cached entry")
+    void writesUpdateTheCache() {
+        productRepository.findById(productId).orElseThrow();
+        tx.executeWithoutResult(status -> em.find(Product.class, productId).setDescription("Widget v2"));
+        SqlStatementCapture.clear();
+
+        assertThat(productRepository.findById(productId)).get().extracting(Product::getDescription).isEqualTo("Widget v2");
+        assertThat(SqlStatementCapture.statements()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Order.products is cached: a second load of the order reads only the order row")
+    void orderProductsCollectionIsCached() {
+        List<Long> first = tx.execute(status -> productIds(em.find(Order.class, orderId)));
+        int afterFirst = SqlStatementCapture.statements().size();
+        SqlStatementCapture.clear();
+
+        List<Long> second = tx.execute(status -> productIds(em.find(Order.class, orderId)));
+
+        assertThat(second).isEqualTo(first).containsExactly(productId);
+        assertThat(afterFirst).isGreaterThanOrEqualTo(2); // the order, then its products
+        assertThat(SqlStatementCapture.statements()).hasSize(1); // the order only
+    }
+
+    @Test
+    @DisplayName("The product list is query cached until a product is written")
+    void productListIsQueryCached() {
+        productRepository.findAll();
+        int afterFirst = SqlStatementCapture.statements().size();
+        assertThat(productRepository.findAll()).hasSize(1);
+        assertThat(SqlStatementCapture.statements()).hasSize(afterFirst);
+
+        productRepository.save(Product.builder().description("Gadget").build());
+        SqlStatementCapture.clear();
+        assertThat(productRepository.findAll()).hasSize(2);
+        assertThat(SqlStatementCapture.statements()).isNotEmpty();
+    }
+
+    private static List<Long> productIds(Order order) {
+        return order.getProducts().stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.CustomerDTO;
+import com.example.store.entity.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk inserts on a real Postgres with the Liquibase schema (the id allocation uses nextval over generate_series).
+ * The inserts have to commit, so the test methods do not run in a transaction. Skipped when Docker is not available.
+ */
+@DataJpaTest(properties = "store.customer-search.in-memory.enabled=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({BulkInsertService.class, CustomerSearchIndex.class, CustomerSearchService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkInsertServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired BulkInsertService bulkInsertService;
+    @Autowired CustomerSearchIndex customerSearchIndex;
+    @Autowired CustomerSearchService customerSearchService;
+
+    @BeforeEach
+    void setUp() {
+        customerSearchIndex.build();
+    }
+
+    @Test
+    void bulkCreatedCustomersAreFoundByTheInMemorySearch() {
+        List<Long> ids = bulkInsertService.insertCustomers(
+                List.of(customer("Zebulon Quartermain"), customer("Quartermain Holdings")).iterator());
+
+        List<Customer> found = customerSearchService.search("quartermain", CustomerSearchService.Mode.SUBSTRING);
+
+        assertThat(found).extracting(Customer::getId).containsExactlyElementsOf(ids);
+        assertThat(customerSearchService.count("quartermain", CustomerSearchService.Mode.PREFIX)).isEqualTo(2);
+    }
+
+    private static CustomerDTO customer(String name) {
+        CustomerDTO customer = new CustomerDTO();
+        customer.setName(name);
+        return customer;
+    }
+}
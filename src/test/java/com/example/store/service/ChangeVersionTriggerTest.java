@@ -0,0 +1,63 @@
+package com.example.store.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The change_version triggers of the Liquibase changelog on a real Postgres: the Last-Modified of a snapshot must not
+ * move backwards when a transaction that started earlier writes after a later one has committed. Skipped when Docker
+ * is not available.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(SnapshotTagService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeVersionTriggerTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired DataSource dataSource;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired SnapshotTagService snapshotTagService;
+
+    @Test
+    void lastModifiedNeverGoesBackwards() throws Exception {
+        try (Connection longRunning = dataSource.getConnection(); Statement statement = longRunning.createStatement()) {
+            longRunning.setAutoCommit(false);
+            // now() of this transaction is fixed from here on
+            statement.execute("select now()");
+            Thread.sleep(50);
+
+            jdbcTemplate.update("insert into public.customer (name) values ('Committed first')");
+            snapshotTagService.refresh(); // what the schedule does, the versions are memoized in between
+            var afterShort = snapshotTagService.current();
+
+            statement.executeUpdate("insert into public.customer (name) values ('Committed second')");
+            longRunning.commit();
+
+            snapshotTagService.refresh();
+            var afterLong = snapshotTagService.current();
+            assertThat(afterLong.etag()).isNotEqualTo(afterShort.etag());
+            assertThat(afterLong.lastModified()).isGreaterThanOrEqualTo(afterShort.lastModified());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.CustomerDTO;
+import com.example.store.api.dto.CustomerOrdersInnerDTO;
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.mapper.CustomerMapper;
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.SqlStatementCapture;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CustomerQueryServiceTest {
+
+    @Autowired EntityManager em;
+    @Autowired CustomerRepository customerRepository;
+
+    CustomerQueryService service;
+
+    Long acmeId;
+    Long globexId;
+    Long initechId;
+
+    @BeforeEach
+    void setUp() {
+        service = new CustomerQueryService(customerRepository, Mappers.getMapper(CustomerMapper.class));
+
+        acmeId = persistCustomer("Acme Co", "A1", "A2");
+        globexId = persistCustomer("Globex", "G1");
+        initechId = persistCustomer("Initech");
+        em.flush();
+        em.clear();
+        SqlStatementCapture.clear();
+    }
+
+    @Test
+    @DisplayName("Fetch-all reads customers and their orders in two statements")
+    void fetchAllTakesTwoStatements() {
+        List<CustomerDTO> customers = service.findAllCustomersWithOrders();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(2);
+        assertThat(customers).hasSize(3);
+        assertThat(ordersOf(customers, acmeId)).containsExactlyInAnyOrder("A1", "A2");
+        assertThat(ordersOf(customers, globexId)).containsExactly("G1");
+        assertThat(ordersOf(customers, initechId)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A page of customers gets its orders with one query restricted to the page")
+    void pageTakesOneOrderQuery() {
+        var page = customerRepository.findAll(PageRequest.of(0, 2, Sort.by("id")));
+        SqlStatementCapture.clear();
+
+        List<CustomerDTO> customers = service.withOrders(page.getContent());
+
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+        assertThat(customers).extracting(CustomerDTO::getId).containsExactly(acmeId, globexId);
+        assertThat(ordersOf(customers, globexId)).containsExactly("G1");
+    }
+
+    @Test
+    @DisplayName("Customer detail is one statement")
+    void detailTakesOneStatement() {
+        CustomerDTO acme = service.findCustomerById(acmeId).orElseThrow();
+        CustomerDTO initech = service.findCustomerById(initechId).orElseThrow();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(2);
+        assertThat(acme.getName()).isEqualTo("Acme Co");
+        assertThat(acme.getOrders()).extracting(CustomerOrdersInnerDTO::getDescription).containsExactly("A1", "A2");
+        assertThat(initech.getOrders()).isEmpty();
+        assertThat(service.findCustomerById(-1L)).isEmpty();
+    }
+
+    private Long persistCustomer(String name, String... orders) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        em.persist(customer);
+        for (String description : orders) {
+            Order order = new Order();
+            order.setDescription(description);
+            order.setCustomer(customer);
+            em.persist(order);
+        }
+        return customer.getId();
+    }
+
+    private static List<String> ordersOf(List<CustomerDTO> customers, Long id) {
+        return customers.stream()
+                .filter(c -> c.getId().equals(id))
+                .findFirst()
+                .orElseThrow()
+                .getOrders().stream()
+                .map(CustomerOrdersInnerDTO::getDescription)
+                .toList();
+    }
+}
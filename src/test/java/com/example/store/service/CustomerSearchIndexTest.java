@@ -0,0 +1,88 @@
+package com.example.store.service;
+
+import com.example.store.repository.projection.CustomerNameView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerSearchIndexTest {
+
+    CustomerSearchIndex index = new CustomerSearchIndex(null);
+
+    @BeforeEach
+    void setUp() {
+        index.load(List.of(
+                name(1L, "Ann Lee"),
+                name(2L, "Mary Anne"),
+                name(3L, "Joanne Smith"),
+                name(4L, "Bob Annandale")));
+    }
+
+    @Test
+    void substringMatchesAnywhereInTheName() {
+        assertThat(index.search("ann", CustomerSearchService.Mode.SUBSTRING, 0, 0).ids())
+                .containsExactly(1L, 2L, 3L, 4L);
+        assertThat(index.search("nne", CustomerSearchService.Mode.SUBSTRING, 0, 0).ids())
+                .containsExactly(2L, 3L);
+        assertThat(index.search("zzz", CustomerSearchService.Mode.SUBSTRING, 0, 0).total()).isZero();
+    }
+
+    @Test
+    void prefixMatchesTheStartOfAnyWord() {
+        assertThat(index.search("ANN", CustomerSearchService.Mode.PREFIX, 0, 0).ids())
+                .containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void shortTermsScanTheNames() {
+        assertThat(index.search("jo", CustomerSearchService.Mode.PREFIX, 0, 0).ids()).containsExactly(3L);
+    }
+
+    @Test
+    void pagesCarryTheTotal() {
+        CustomerSearchIndex.Result page = index.search("ann", CustomerSearchService.Mode.SUBSTRING, 1, 2);
+
+        assertThat(page.ids()).containsExactly(2L, 3L);
+        assertThat(page.total()).isEqualTo(4);
+        assertThat(index.search("ann", CustomerSearchService.Mode.SUBSTRING, 10, 2).ids()).isEmpty();
+    }
+
+    @Test
+    void keysetPagesContinueAfterTheCursorId() {
+        assertThat(index.searchAfter("ann", CustomerSearchService.Mode.SUBSTRING, 2L, 1).ids()).containsExactly(3L);
+        assertThat(index.searchAfter("ann", CustomerSearchService.Mode.SUBSTRING, 4L, 10).ids()).isEmpty();
+    }
+
+    @Test
+    void createdCustomersAreSearchableInIdOrder() {
+        index.add(6L, "Annabel Green");
+        index.add(5L, "Hannah Brown"); // committed out of id order
+
+        assertThat(index.search("ann", CustomerSearchService.Mode.SUBSTRING, 0, 0).ids())
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(index.size()).isEqualTo(6);
+    }
+
+    @Test
+    void reportsItsFootprint() {
+        assertThat(index.trigramCount()).isPositive();
+        assertThat(index.estimatedFootprintBytes()).isPositive();
+    }
+
+    private static CustomerNameView name(Long id, String name) {
+        return new CustomerNameView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.store.service;
+
+import com.example.store.entity.Customer;
+import com.example.store.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the portable (H2) search path. The ranked Postgres queries and the trigram index need a Postgres server.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CustomerSearchService.class)
+class CustomerSearchServiceTest {
+
+    @Autowired CustomerRepository customerRepository;
+    @Autowired CustomerSearchService customerSearchService;
+
+    @BeforeEach
+    void setUp() {
+        for (String name : List.of("Ann Lee", "Mary Anne", "Joanne Smith", "Bob 100%_Real")) {
+            Customer customer = new Customer();
+            customer.setName(name);
+            customerRepository.save(customer);
+        }
+    }
+
+    @Test
+    void substringMatchesAnywhereInTheName() {
+        assertThat(names(customerSearchService.search("ann", CustomerSearchService.Mode.SUBSTRING)))
+                .containsExactlyInAnyOrder("Ann Lee", "Mary Anne", "Joanne Smith");
+    }
+
+    @Test
+    void prefixMatchesTheStartOfAnyWord() {
+        assertThat(names(customerSearchService.search("ann", CustomerSearchService.Mode.PREFIX)))
+                .containsExactlyInAnyOrder("Ann Lee", "Mary Anne");
+        assertThat(customerSearchService.count("ann", CustomerSearchService.Mode.PREFIX)).isEqualTo(2);
+    }
+
+    @Test
+    void likeWildcardsInTheTermAreLiteral() {
+        assertThat(names(customerSearchService.search("100%_", CustomerSearchService.Mode.PREFIX)))
+                .containsExactly("Bob 100%_Real");
+        assertThat(customerSearchService.search("%", CustomerSearchService.Mode.PREFIX)).isEmpty();
+    }
+
+    @Test
+    void prefixPagesAndKeysetPages() {
+        var page = customerSearchService.search("ann", CustomerSearchService.Mode.PREFIX,
+                PageRequest.of(0, 1, Sort.by("id")));
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(names(page.getContent())).containsExactly("Ann Lee");
+
+        long afterId = page.getContent().get(0).getId();
+        assertThat(names(customerSearchService.searchAfter("ann", CustomerSearchService.Mode.PREFIX, afterId,
+                PageRequest.of(0, 10, Sort.by("id"))))).containsExactly("Mary Anne");
+    }
+
+    private static List<String> names(List<Customer> customers) {
+        return customers.stream().map(Customer::getName).toList();
+    }
+}
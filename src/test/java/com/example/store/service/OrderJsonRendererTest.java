@@ -0,0 +1,122 @@
+package com.example.store.service;
+
+import com.example.store.config.ParallelReadConfig;
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contract test for the database-rendered fetch-all body: on a real Postgres with the Liquibase schema, the bytes of
+ * {@link OrderJsonRenderer} must equal Jackson's serialization of {@link OrderQueryService#findAllOrdersWithProducts()},
+ * i.e. what GET /order returns with the default renderer. Skipped when Docker is not available.
+ */
+@DataJpaTest(properties = "store.order-cache.renderer=database")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureJson
+@Testcontainers(disabledWithoutDocker = true)
+@ComponentScan(basePackageClasses = OrderMapper.class)
+@Import({ParallelReadConfig.class, OrderQueryService.class, OrderResponseCache.class, OrderJsonRenderer.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderJsonRendererTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired OrderJsonRenderer orderJsonRenderer;
+    @Autowired OrderQueryService orderQueryService;
+    @Autowired OrderResponseCache orderResponseCache;
+    @Autowired OrderRepository orderRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired ProductRepository productRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // start from empty tables, without the sample data the changelog loads
+        jdbcTemplate.update("delete from public.order_product");
+        jdbcTemplate.update("delete from public.\"order\"");
+        jdbcTemplate.update("delete from public.customer");
+        jdbcTemplate.update("delete from public.product");
+    }
+
+    @Test
+    void emptyTableRendersAnEmptyArray() {
+        assertSameBytes();
+    }
+
+    @Test
+    void rendersExactlyWhatJacksonWritesForTheOrderDtos() {
+        Product plain = productRepository.save(Product.builder().description("Widget").build());
+        Product quoted = productRepository.save(Product.builder().description("12\" \\ rod, \"heavy\"").build());
+        Product unicode = productRepository.save(Product.builder().description("Café ☕ 𝄞 </script>").build());
+
+        Customer acme = customer("Acme Co");
+        Customer control = customer("Tab\there\nnew line\r\bback\fform\u0001\u001f end");
+
+        order("First order", acme, plain, quoted, unicode);
+        order("No products", acme);
+        order("Émoji 🎉 and \"quotes\"", control, unicode, plain);
+        order("", control, quoted);
+
+        assertSameBytes();
+    }
+
+    @Test
+    void unicodeEscapesAreUpperCasedLikeJackson() {
+        byte[] json = "{\"a\":\"\\u001f \\\\u001f \\n \\u00ab\"}".getBytes(StandardCharsets.UTF_8);
+
+        OrderJsonRenderer.upperCaseUnicodeEscapes(json);
+
+        // the second one is an escaped backslash followed by plain text
+        assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo("{\"a\":\"\\u001F \\\\u001f \\n \\u00AB\"}");
+    }
+
+    private void assertSameBytes() {
+        byte[] expected = orderResponseCache.serialize(orderQueryService.findAllOrdersWithProducts());
+        byte[] actual = orderJsonRenderer.renderAllOrders();
+
+        // compare as text first for a readable diff
+        assertThat(new String(actual, StandardCharsets.UTF_8)).isEqualTo(new String(expected, StandardCharsets.UTF_8));
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private Customer customer(String name) {
+        Customer customer = new Customer();
+        customer.setName(name);
+        return customerRepository.save(customer);
+    }
+
+    private void order(String description, Customer customer, Product... products) {
+        Order order = new Order();
+        order.setDescription(description);
+        order.setCustomer(customer);
+        for (Product product : products) {
+            order.getProducts().add(product);
+        }
+        orderRepository.save(order);
+    }
+}
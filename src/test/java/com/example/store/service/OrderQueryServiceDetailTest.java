@@ -0,0 +1,101 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.datasource.ParallelSnapshotReader;
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.SqlStatementCapture;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderQueryServiceDetailTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    OrderQueryService service;
+
+    Long widgetId;
+    Long gadgetId;
+    Long withProductsId;
+    Long withoutProductsId;
+
+    @BeforeEach
+    void setUp() {
+        service = new OrderQueryService(orderRepository, Mappers.getMapper(OrderMapper.class),
+                ParallelSnapshotReader.sequential(transactionManager));
+
+        Customer customer = new Customer();
+        customer.setName("Acme Co");
+        em.persist(customer);
+        Product widget = Product.builder().description("Widget").build();
+        Product gadget = Product.builder().description("Gadget").build();
+        em.persist(widget);
+        em.persist(gadget);
+        widgetId = widget.getId();
+        gadgetId = gadget.getId();
+
+        Order withProducts = new Order();
+        withProducts.setDescription("Order A");
+        withProducts.setCustomer(customer);
+        withProducts.getProducts().add(widget);
+        withProducts.getProducts().add(gadget);
+        em.persist(withProducts);
+        Order withoutProducts = new Order();
+        withoutProducts.setDescription("Order B");
+        withoutProducts.setCustomer(customer);
+        em.persist(withoutProducts);
+        withProductsId = withProducts.getId();
+        withoutProductsId = withoutProducts.getId();
+
+        em.flush();
+        em.clear();
+        SqlStatementCapture.clear();
+    }
+
+    @Test
+    @DisplayName("GET /order/{id} is answered by one SQL statement")
+    void loadsOrderCustomerAndProductsInOneStatement() {
+        OrderDTO order = service.findOrderById(withProductsId).orElseThrow();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+        assertThat(order.getDescription()).isEqualTo("Order A");
+        assertThat(order.getCustomer().getName()).isEqualTo("Acme Co");
+        assertThat(order.getProducts()).extracting(ProductSummaryDTO::getId).containsExactlyInAnyOrder(widgetId, gadgetId);
+        assertThat(order.getProducts()).extracting(ProductSummaryDTO::getDescription)
+                .containsExactlyInAnyOrder("Widget", "Gadget");
+    }
+
+    @Test
+    void orderWithoutProductsHasAnEmptyList() {
+        OrderDTO order = service.findOrderById(withoutProductsId).orElseThrow();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+        assertThat(order.getCustomer().getName()).isEqualTo("Acme Co");
+        assertThat(order.getProducts()).isEmpty();
+    }
+
+    @Test
+    void unknownOrderIsEmpty() {
+        assertThat(service.findOrderById(-1L)).isEmpty();
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+    }
+}
@@ -2,8 +2,10 @@ package com.example.store.service;
 
 import com.example.store.api.dto.OrderDTO;
 import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.datasource.ParallelSnapshotReader;
 import com.example.store.mapper.OrderMapper;
 import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderPageRow;
 import com.example.store.repository.projection.OrderRow;
 import com.example.store.repository.projection.ProductSummaryView;
 import lombok.AllArgsConstructor;
@@ -16,9 +18,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -39,7 +46,8 @@ class OrderQueryServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new OrderQueryService(orderRepository, orderMapper);
+        service = new OrderQueryService(orderRepository, orderMapper,
+                ParallelSnapshotReader.sequential(mock(PlatformTransactionManager.class)));
     }
 
     @Test
@@ -50,7 +58,8 @@ class OrderQueryServiceTest {
 
         assertThat(result).isEmpty();
         verify(orderRepository).findAllRows();
-        verify(orderRepository, never()).findAllOrderProducts();
+        // issued alongside the order query, before it is known to be empty
+        verify(orderRepository).findAllOrderProducts();
     }
 
     @Test
@@ -101,6 +110,93 @@ class OrderQueryServiceTest {
         assertThat(result.get(0).getProducts()).isEmpty();
     }
 
+    @Test
+    void productSharedByOrdersIsOneSummaryInstance() {
+        // newest first, as findAllRows returns them, so the lookups are not in product row order
+        var o5 = new OrderRowImpl(5L, "Order E", 10L, "Acme", new ArrayList<>());
+        var o2 = new OrderRowImpl(2L, "Order B", 10L, "Acme", new ArrayList<>());
+        var o9 = new OrderRowImpl(9L, "Order I", 11L, "Beta", new ArrayList<>());
+        var o7 = new OrderRowImpl(7L, "Order G", 11L, "Beta", new ArrayList<>());
+        when(orderRepository.findAllRows()).thenReturn(List.of(o9, o5, o2, o7));
+        when(orderRepository.findAllOrderProducts()).thenReturn(List.of(
+                new ProductSummaryViewImpl(2L, 100L, "Widget"),
+                new ProductSummaryViewImpl(5L, 100L, "Widget"),
+                new ProductSummaryViewImpl(5L, 300L, "Sprocket"),
+                new ProductSummaryViewImpl(9L, 100L, "Widget")));
+
+        List<OrderDTO> result = service.findAllOrdersWithProducts();
+
+        assertThat(result).extracting(OrderDTO::getId).containsExactly(9L, 5L, 2L, 7L);
+        assertThat(result.get(1).getProducts())
+                .extracting(ProductSummaryDTO::getId, ProductSummaryDTO::getDescription)
+                .containsExactly(tuple2(100L, "Widget"), tuple2(300L, "Sprocket"));
+        assertThat(result.get(3).getProducts()).isEmpty();
+        ProductSummaryDTO widget = result.get(0).getProducts().get(0);
+        assertThat(result.get(1).getProducts().get(0)).isSameAs(widget);
+        assertThat(result.get(2).getProducts().get(0)).isSameAs(widget);
+    }
+
+    @Test
+    void productRowsOutOfOrderIdOrderAreStillStitched() {
+        var o1 = new OrderRowImpl(1L, "Order A", 10L, "Acme", new ArrayList<>());
+        var o2 = new OrderRowImpl(2L, "Order B", 10L, "Acme", new ArrayList<>());
+        var page = List.of(o1, o2);
+        when(orderRepository.findOrderProductsByOrderIds(List.of(1L, 2L))).thenReturn(List.of(
+                new ProductSummaryViewImpl(2L, 200L, "Gadget"),
+                new ProductSummaryViewImpl(1L, 100L, "Widget"),
+                new ProductSummaryViewImpl(2L, 100L, "Widget")));
+
+        List<OrderDTO> result = service.withProducts(page);
+
+        assertThat(result.get(0).getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(100L);
+        assertThat(result.get(1).getProducts()).extracting(ProductSummaryDTO::getId).containsExactly(200L, 100L);
+    }
+
+    @Test
+    void streamMergeJoinsOrdersAndProducts() {
+        var o1 = new OrderRowImpl(1L, "Order A", 10L, "Acme", new ArrayList<>());
+        var o2 = new OrderRowImpl(2L, "Order B", 10L, "Acme", new ArrayList<>());
+        var o3 = new OrderRowImpl(3L, "Order C", 11L, "Beta", new ArrayList<>());
+        when(orderRepository.streamAllRows()).thenReturn(Stream.of(o1, o2, o3));
+        when(orderRepository.streamAllOrderProducts()).thenReturn(Stream.of(
+                new ProductSummaryViewImpl(1L, 100L, "Widget"),
+                new ProductSummaryViewImpl(1L, 200L, "Gadget"),
+                new ProductSummaryViewImpl(3L, 200L, "Gadget")));
+
+        List<OrderDTO> streamed = new ArrayList<>();
+        service.streamAllOrdersWithProducts(streamed::add);
+
+        assertThat(streamed).extracting(OrderDTO::getId).containsExactly(1L, 2L, 3L);
+        assertThat(streamed.get(0).getProducts())
+                .extracting(ProductSummaryDTO::getId, ProductSummaryDTO::getDescription)
+                .containsExactly(tuple2(100L, "Widget"), tuple2(200L, "Gadget"));
+        assertThat(streamed.get(1).getProducts()).isEmpty();
+        assertThat(streamed.get(2).getProducts())
+                .extracting(ProductSummaryDTO::getId)
+                .containsExactly(200L);
+        assertThat(streamed.get(2).getCustomer().getName()).isEqualTo("Beta");
+    }
+
+    @Test
+    void orderPageLoadsProductsForPageIdsOnly() {
+        var pageable = PageRequest.of(1, 2);
+        var o3 = new OrderPageRowImpl(3L, "Order C", 10L, "Acme", new ArrayList<>(), Instant.EPOCH);
+        var o4 = new OrderPageRowImpl(4L, "Order D", 11L, "Beta", new ArrayList<>(), Instant.EPOCH);
+        when(orderRepository.findPageRows(pageable)).thenReturn(new PageImpl<>(List.of(o3, o4), pageable, 5));
+        when(orderRepository.findOrderProductsByOrderIds(List.of(3L, 4L)))
+                .thenReturn(List.of(new ProductSummaryViewImpl(4L, 100L, "Widget")));
+
+        var page = service.findOrderPage(pageable);
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting(OrderDTO::getId).containsExactly(3L, 4L);
+        assertThat(page.getContent().get(0).getProducts()).isEmpty();
+        assertThat(page.getContent().get(1).getProducts())
+                .extracting(ProductSummaryDTO::getId, ProductSummaryDTO::getDescription)
+                .containsExactly(tuple2(100L, "Widget"));
+        verify(orderRepository, never()).findAllOrderProducts();
+    }
+
     // --- helpers -------------------------------------------------------------
 
     /**
@@ -125,6 +221,21 @@ class OrderQueryServiceTest {
     }
 
 
+    /**
+     * Simple test impl of the paged order projection.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    private static class OrderPageRowImpl implements OrderPageRow {
+        private Long id;
+        private String description;
+        private Long customerId;
+        private String customerName;
+        private List<ProductSummaryView> products;
+        private Instant createdAt;
+    }
+
     /**
      * Simple test impl of the (order, product) join projection.
      */
@@ -0,0 +1,99 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void concurrentMissesBuildTheBodyOnce() throws Exception {
+        OrderResponseCache cache = new OrderResponseCache(objectMapper, Long.MAX_VALUE, true);
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<OrderResponseCache.Entry>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    go.await();
+                    return cache.get("\"v1\"", () -> {
+                        builds.incrementAndGet();
+                        return List.of(order(1L));
+                    });
+                }));
+            }
+            go.countDown();
+            OrderResponseCache.Entry first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<OrderResponseCache.Entry> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(builds).hasValue(1);
+    }
+
+    @Test
+    void newTagReplacesTheCachedBody() throws Exception {
+        OrderResponseCache cache = new OrderResponseCache(objectMapper, Long.MAX_VALUE, false);
+
+        cache.get("\"v1\"", () -> List.of(order(1L)));
+        OrderResponseCache.Entry v2 = cache.get("\"v2\"", () -> List.of(order(1L), order(2L)));
+
+        assertThat(v2.gzip()).isNull();
+        assertThat(objectMapper.readValue(v2.json(), OrderDTO[].class)).hasSize(2);
+        assertThat(cache.get("\"v2\"", () -> { throw new AssertionError("should be cached"); })).isSameAs(v2);
+    }
+
+    @Test
+    void bodiesOverTheCeilingAreServedButNotKept() {
+        OrderResponseCache cache = new OrderResponseCache(objectMapper, 10, true);
+        AtomicInteger builds = new AtomicInteger();
+
+        cache.get("\"v1\"", () -> { builds.incrementAndGet(); return List.of(order(1L)); });
+        OrderResponseCache.Entry again = cache.get("\"v1\"", () -> { builds.incrementAndGet(); return List.of(order(1L)); });
+
+        assertThat(again.json()).isNotEmpty();
+        assertThat(builds).hasValue(2);
+    }
+
+    @Test
+    void hitsMissesAndSizeAreExported() {
+        OrderResponseCache cache = new OrderResponseCache(objectMapper, Long.MAX_VALUE, false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        OrderResponseCache.Entry v1 = cache.get("\"v1\"", () -> List.of(order(1L)));
+        cache.get("\"v1\"", () -> List.of(order(1L)));
+        cache.get("\"v1\"", () -> List.of(order(1L)));
+
+        assertThat(registry.get("store.order-cache.requests").tag("result", "hit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("store.order-cache.requests").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("store.order-cache.size").gauge().value()).isEqualTo(v1.json().length);
+    }
+
+    private static OrderDTO order(Long id) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(id);
+        dto.setDescription("Order " + id);
+        return dto;
+    }
+}
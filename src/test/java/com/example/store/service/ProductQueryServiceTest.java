@@ -0,0 +1,82 @@
+package com.example.store.service;
+
+import com.example.store.api.dto.ProductDTO;
+import com.example.store.config.CacheConfig;
+import com.example.store.entity.Product;
+import com.example.store.mapper.ProductMapper;
+import com.example.store.repository.ProductRepository;
+import com.example.store.repository.SqlStatementCapture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs outside a test transaction: the cache manager defers cache writes made inside a transaction until it commits,
+ * and a test transaction never does.
+ */
+@DataJpaTest(properties = SqlStatementCapture.PROPERTY)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ComponentScan(basePackageClasses = ProductMapper.class)
+@Import({CacheConfig.class, ProductQueryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductQueryServiceTest {
+
+    @Autowired ProductQueryService service;
+    @Autowired ProductRepository productRepository;
+    @Autowired CacheManager cacheManager;
+
+    Long productId;
+
+    @BeforeEach
+    void setUp() {
+        productId = productRepository.save(Product.builder().description("Widget").build()).getId();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        SqlStatementCapture.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void secondReadIsServedFromTheCache() {
+        ProductDTO first = service.findProductById(productId).orElseThrow();
+        ProductDTO second = service.findProductById(productId).orElseThrow();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(1);
+        assertThat(second).isSameAs(first);
+        assertThat(second.getDescription()).isEqualTo("Widget");
+    }
+
+    @Test
+    void evictedProductIsReloaded() {
+        service.findProductById(productId);
+        service.evict(List.of(productId));
+        service.findProductById(productId);
+
+        assertThat(SqlStatementCapture.statements()).hasSize(2);
+    }
+
+    @Test
+    void missesAreNotCached() {
+        assertThat(service.findProductById(-1L)).isEmpty();
+        assertThat(service.findProductById(-1L)).isEmpty();
+
+        assertThat(SqlStatementCapture.statements()).hasSize(2);
+    }
+}
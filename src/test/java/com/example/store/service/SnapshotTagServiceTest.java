@@ -0,0 +1,162 @@
+package com.example.store.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The version counters are bumped by Postgres triggers (db.changelog-6); here the rows are bumped by hand the way the
+ * triggers would, followed by the refresh the schedule would run (the interval is long enough never to expire here).
+ */
+@JdbcTest(properties = "store.conditional.version-refresh-interval=PT1M")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SnapshotTagService.class)
+class SnapshotTagServiceTest {
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired SnapshotTagService snapshotTagService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+            create table if not exists public.change_version (
+              table_name varchar(63) primary key,
+              version bigint default 0 not null,
+              updated_at timestamp with time zone default current_timestamp not null)
+            """);
+        jdbcTemplate.update("delete from public.change_version");
+        jdbcTemplate.update("""
+            insert into public.change_version (table_name)
+            values ('order'), ('order_product'), ('product'), ('customer')
+            """);
+        snapshotTagService.refresh();
+    }
+
+    @Test
+    void tagIsStableWhileNothingChanges() {
+        assertThat(snapshotTagService.current()).isEqualTo(snapshotTagService.current());
+    }
+
+    @Test
+    void productLinkChangesMoveTheOrderTag() {
+        var before = snapshotTagService.current();
+
+        bump("order_product");
+
+        assertThat(snapshotTagService.current().etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void tagOnlyCoversTheRequestedTables() {
+        var customers = snapshotTagService.forTables(List.of("customer"));
+
+        bump("product");
+        assertThat(snapshotTagService.forTables(List.of("customer"))).isEqualTo(customers);
+
+        bump("customer");
+        assertThat(snapshotTagService.forTables(List.of("customer")).etag()).isNotEqualTo(customers.etag());
+    }
+
+    @Test
+    void versionsAreMemoizedUntilTheNextRefresh() {
+        var before = snapshotTagService.current();
+
+        jdbcTemplate.update("update public.change_version set version = version + 1 where table_name = 'order'");
+        assertThat(snapshotTagService.current()).isEqualTo(before); // no round trip, so the write is not seen yet
+
+        snapshotTagService.refresh();
+        assertThat(snapshotTagService.current().etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void invalidateMakesTheNextTagReadTheVersions() {
+        var before = snapshotTagService.current();
+
+        jdbcTemplate.update("update public.change_version set version = version + 1 where table_name = 'order'");
+        snapshotTagService.invalidate();
+
+        assertThat(snapshotTagService.current().etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void ifNoneMatchIsComparedWeaklyAgainstEveryListedTag() {
+        var snapshot = snapshotTagService.current();
+        String tag = snapshot.etag();
+
+        assertThat(snapshotTagService.matchesConditional("\"other\", " + tag, 0, snapshot)).isTrue();
+        assertThat(snapshotTagService.matchesConditional("W/" + tag, 0, snapshot)).isTrue();
+        assertThat(snapshotTagService.matchesConditional("*", 0, snapshot)).isTrue();
+        assertThat(snapshotTagService.matchesConditional("\"other\", W/\"stale\"", 0, snapshot)).isFalse();
+    }
+
+    @Test
+    void ifModifiedSinceIsIgnoredWhenIfNoneMatchIsSent() {
+        var snapshot = snapshotTagService.current();
+
+        assertThat(snapshotTagService.matchesConditional(snapshot.etag(), 1, snapshot)).isTrue();
+        assertThat(snapshotTagService.matchesConditional("\"stale\"", Long.MAX_VALUE, snapshot)).isFalse();
+        assertThat(snapshotTagService.matchesConditional(null, Long.MAX_VALUE, snapshot)).isTrue();
+    }
+
+    @Test
+    void representationsOfOneSnapshotHaveDistinctTags() {
+        var json = snapshotTagService.current();
+        var ndjson = json.forRepresentation("ndjson");
+
+        assertThat(ndjson.etag()).isNotEqualTo(json.etag()).startsWith("\"").endsWith("-ndjson\"");
+        assertThat(ndjson.lastModified()).isEqualTo(json.lastModified());
+        assertThat(snapshotTagService.matchesConditional(json.etag(), 0, ndjson)).isFalse();
+    }
+
+    @Test
+    void theMatchingRepresentationIsReturned() {
+        var json = snapshotTagService.current();
+        var gzip = json.forRepresentation("gzip");
+
+        assertThat(snapshotTagService.matchingRepresentation(gzip.etag(), 0, json, gzip)).isEqualTo(gzip);
+        assertThat(snapshotTagService.matchingRepresentation(json.etag(), 0, json, gzip)).isEqualTo(json);
+        assertThat(snapshotTagService.matchingRepresentation("\"stale\"", 0, json, gzip)).isNull();
+    }
+
+    @Test
+    void conditionalOutcomesAreCounted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        snapshotTagService.bindTo(registry);
+        var snapshot = snapshotTagService.current();
+        // the service is shared by the whole class, so only the increments are this test's
+        double notModified = count(registry, "not_modified");
+        double modified = count(registry, "modified");
+        double unconditional = count(registry, "unconditional");
+
+        snapshotTagService.matchesConditional(snapshot.etag(), 0, snapshot);
+        snapshotTagService.matchesConditional("\"stale\"", 0, snapshot);
+        snapshotTagService.matchesConditional(null, 0, snapshot);
+
+        assertThat(count(registry, "not_modified")).isEqualTo(notModified + 1);
+        assertThat(count(registry, "modified")).isEqualTo(modified + 1);
+        assertThat(count(registry, "unconditional")).isEqualTo(unconditional + 1);
+    }
+
+    private static double count(SimpleMeterRegistry registry, String result) {
+        return registry.get("store.conditional.requests").tag("result", result).functionCounter().count();
+    }
+
+    private void bump(String table) {
+        jdbcTemplate.update("""
+            update public.change_version set version = version + 1, updated_at = current_timestamp
+            where table_name = ?
+            """, table);
+        snapshotTagService.refresh();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.store.service;
+
+import com.example.store.config.ParallelReadConfig;
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.CustomerRepository;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.ProductRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pinning check for the virtual-thread mode. The Hibernate/JDBC read and write paths run on many virtual threads
+ * against a two connection pool, so most of them park waiting for a connection; a JFR recording collects every
+ * jdk.VirtualThreadPinned event (a virtual thread that blocked while holding a monitor). Runs outside a test transaction
+ * so the worker threads see the data.
+ * <p>
+ * The embedded H2 engine is not the production driver (pgjdbc guards its I/O with locks, not monitors), so frames of
+ * org.h2 are not counted. A pin that only shows up on network I/O is reported by -Djdk.tracePinnedThreads during the
+ * load test (utils/loadTest.js).
+ */
+// showSql off (spring.jpa.show-sql=false): Hibernate would print every statement to System.out, and Gradle's output
+// redirection pins the printing thread, which is the harness rather than the code under test
+@DataJpaTest(showSql = false, properties = "spring.datasource.hikari.maximum-pool-size=2")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ComponentScan(basePackageClasses = OrderMapper.class)
+@Import({ParallelReadConfig.class, OrderQueryService.class, CustomerQueryService.class, ProductQueryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VirtualThreadPinningTest {
+
+    static final int TASKS = 200;
+
+    @Autowired OrderQueryService orderQueryService;
+    @Autowired CustomerQueryService customerQueryService;
+    @Autowired ProductQueryService productQueryService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired ProductRepository productRepository;
+
+    Long orderId;
+    Long customerId;
+    Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Product product = productRepository.save(Product.builder().description("Widget").build());
+        Customer customer = new Customer();
+        customer.setName("Acme Co");
+        customer = customerRepository.save(customer);
+        Order order = new Order();
+        order.setDescription("Order A");
+        order.setCustomer(customer);
+        order.getProducts().add(product);
+        orderId = orderRepository.save(order).getId();
+        customerId = customer.getId();
+        productId = product.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void hibernateAndJdbcPathsDoNotPinCarrierThreads() throws Exception {
+        List<RecordedEvent> pinned;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < TASKS; i++) {
+                    int n = i;
+                    tasks.add(executor.submit(() -> {
+                        orderQueryService.findAllOrdersWithProducts();
+                        orderQueryService.findOrderPage(PageRequest.of(0, 10));
+                        orderQueryService.findOrderById(orderId);
+                        customerQueryService.findCustomerById(customerId);
+                        productQueryService.findProductById(productId);
+                        // a write: sequence allocation, insert and commit
+                        productRepository.save(Product.builder().description("Gadget " + n).build());
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+
+            recording.stop();
+            Path file = Files.createTempFile("virtual-thread-pinning", ".jfr");
+            try {
+                recording.dump(file);
+                pinned = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> !inFrames(event, "org.h2."))
+                        .toList();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        assertThat(pinned).as("pinned virtual threads:%n%s",
+                pinned.stream().map(VirtualThreadPinningTest::describe).collect(Collectors.joining("\n"))).isEmpty();
+        assertThat(productRepository.count()).isEqualTo(TASKS + 1);
+    }
+
+    @Test
+    void applicationCodeHasNoSynchronizedMethods() throws Exception {
+        // the scheduled writers (read model, change feeds, replica lag monitor) query the database under their lock
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition definition) {
+                return true;
+            }
+        };
+        scanner.addIncludeFilter((reader, factory) -> true);
+
+        List<String> synchronizedMethods = new ArrayList<>();
+        for (BeanDefinition definition : scanner.findCandidateComponents("com.example.store")) {
+            Class<?> type = Class.forName(definition.getBeanClassName(), false, getClass().getClassLoader());
+            for (Method method : type.getDeclaredMethods()) {
+                if (Modifier.isSynchronized(method.getModifiers())) {
+                    synchronizedMethods.add(type.getName() + "." + method.getName());
+                }
+            }
+        }
+        assertThat(synchronizedMethods).isEmpty();
+    }
+
+    // the event's toString stops after five frames, too few to see where the monitor was taken
+    private static String describe(RecordedEvent event) {
+        StringBuilder description = new StringBuilder(event.getEventType().getName())
+                .append(" duration=").append(event.getDuration());
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                description.append("\n    at ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(" line ").append(frame.getLineNumber());
+            }
+        }
+        return description.toString();
+    }
+
+    private static boolean inFrames(RecordedEvent event, String packagePrefix) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().startsWith(packagePrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.store.service.readmodel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replication stream itself needs a Postgres server; these cover the mapping of test_decoding output to events.
+ */
+class LogicalDecodingOrderChangeFeedTest {
+
+    @Test
+    void mapsChangesOfFollowedTables() {
+        assertThat(LogicalDecodingOrderChangeFeed.parse(
+                "table public.\"order\": INSERT: id[bigint]:42 description[character varying]:'Order A' customer_id[bigint]:7"))
+                .isEqualTo(OrderChangeEvent.orderUpserted(42));
+        assertThat(LogicalDecodingOrderChangeFeed.parse("table public.\"order\": DELETE: id[bigint]:42"))
+                .isEqualTo(OrderChangeEvent.orderDeleted(42));
+        assertThat(LogicalDecodingOrderChangeFeed.parse(
+                "table public.order_product: DELETE: order_id[bigint]:42 product_id[bigint]:3"))
+                .isEqualTo(OrderChangeEvent.orderUpserted(42));
+        assertThat(LogicalDecodingOrderChangeFeed.parse(
+                "table public.product: UPDATE: id[bigint]:3 description[character varying]:'Gadget v2'"))
+                .isEqualTo(OrderChangeEvent.productChanged(3));
+        assertThat(LogicalDecodingOrderChangeFeed.parse(
+                "table public.customer: UPDATE: id[bigint]:7 name[character varying]:'Acme'"))
+                .isEqualTo(OrderChangeEvent.customerChanged(7));
+    }
+
+    @Test
+    void ignoresTransactionMarkersAndOtherTables() {
+        assertThat(LogicalDecodingOrderChangeFeed.parse("BEGIN")).isNull();
+        assertThat(LogicalDecodingOrderChangeFeed.parse("COMMIT")).isNull();
+        assertThat(LogicalDecodingOrderChangeFeed.parse(
+                "table public.databasechangelog: INSERT: id[character varying]:'x'")).isNull();
+    }
+}
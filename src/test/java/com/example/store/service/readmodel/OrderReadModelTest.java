@@ -0,0 +1,194 @@
+package com.example.store.service.readmodel;
+
+import com.example.store.api.dto.OrderDTO;
+import com.example.store.api.dto.ProductSummaryDTO;
+import com.example.store.datasource.ParallelSnapshotReader;
+import com.example.store.entity.Customer;
+import com.example.store.entity.Order;
+import com.example.store.entity.Product;
+import com.example.store.mapper.OrderMapper;
+import com.example.store.repository.OrderRepository;
+import com.example.store.repository.projection.OrderRow;
+import com.example.store.service.OrderQueryService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the read model against the embedded database with a stand-in feed, so no Postgres or replication slot is
+ * needed: the test makes a change through JPA and then emits the event the real feed would have produced.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderReadModelTest {
+
+    @Autowired EntityManager em;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    InMemoryOrderChangeFeed feed = new InMemoryOrderChangeFeed();
+    OrderReadModel readModel;
+
+    Customer customer;
+    Product widget;
+    Product gadget;
+    Long order1Id;
+    Long order2Id;
+
+    @BeforeEach
+    void setUp() {
+        OrderQueryService orderQueryService =
+                new OrderQueryService(orderRepository, Mappers.getMapper(OrderMapper.class),
+                        ParallelSnapshotReader.sequential(transactionManager));
+        readModel = new OrderReadModel(orderRepository, orderQueryService, feed);
+
+        customer = new Customer();
+        customer.setName("Acme Co");
+        em.persist(customer);
+        widget = Product.builder().description("Widget").build();
+        gadget = Product.builder().description("Gadget").build();
+        em.persist(widget);
+        em.persist(gadget);
+
+        order1Id = persistOrder("Order A", widget, gadget).getId();
+        order2Id = persistOrder("Order B", gadget).getId();
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void bootstrapLoadsEveryOrderInFetchAllOrder() {
+        readModel.bootstrap();
+
+        assertThat(feed.started).isTrue();
+        OrderReadModel.View view = readModel.view();
+        assertThat(view.orders()).extracting(OrderDTO::getId)
+                .containsExactlyElementsOf(orderRepository.findAllRows().stream().map(OrderRow::getId).toList());
+        assertThat(view.findById(order1Id)).get()
+                .satisfies(o -> assertThat(productIds(o)).containsExactlyInAnyOrder(widget.getId(), gadget.getId()));
+        assertThat(view.findById(order2Id)).get()
+                .satisfies(o -> assertThat(o.getCustomer().getName()).isEqualTo("Acme Co"));
+    }
+
+    @Test
+    void notReadyBeforeBootstrap() {
+        assertThat(readModel.isReady()).isFalse();
+        assertThat(readModel.view()).isNull();
+
+        readModel.poll(); // ignored until the snapshot is loaded
+        assertThat(feed.polls).isZero();
+    }
+
+    @Test
+    void appliesInsertsUpdatesAndDeletes() {
+        readModel.bootstrap();
+        String etag = readModel.view().snapshot().etag();
+
+        Long order3Id = persistOrder("Order C", widget).getId();
+        em.find(Order.class, order1Id).setDescription("Order A (amended)");
+        em.remove(em.find(Order.class, order2Id));
+        em.flush();
+        feed.emit(OrderChangeEvent.orderUpserted(order3Id),
+                OrderChangeEvent.orderUpserted(order1Id),
+                OrderChangeEvent.orderDeleted(order2Id));
+
+        readModel.poll();
+
+        OrderReadModel.View view = readModel.view();
+        assertThat(view.orders()).extracting(OrderDTO::getId).containsExactlyInAnyOrder(order1Id, order3Id);
+        assertThat(view.findById(order1Id)).get().extracting(OrderDTO::getDescription).isEqualTo("Order A (amended)");
+        assertThat(view.findById(order2Id)).isEmpty();
+        assertThat(view.snapshot().etag()).isNotEqualTo(etag);
+    }
+
+    @Test
+    void productChangeRefreshesEveryOrderContainingIt() {
+        readModel.bootstrap();
+
+        em.find(Product.class, gadget.getId()).setDescription("Gadget v2");
+        em.flush();
+        feed.emit(OrderChangeEvent.productChanged(gadget.getId()));
+
+        readModel.poll();
+
+        for (OrderDTO order : readModel.view().orders()) {
+            assertThat(order.getProducts())
+                    .filteredOn(p -> p.getId().equals(gadget.getId()))
+                    .extracting(ProductSummaryDTO::getDescription)
+                    .containsExactly("Gadget v2");
+        }
+    }
+
+    @Test
+    void replayedEventsAreHarmless() {
+        readModel.bootstrap();
+        List<OrderDTO> before = readModel.view().orders();
+
+        feed.emit(OrderChangeEvent.orderUpserted(order1Id), OrderChangeEvent.orderUpserted(order1Id));
+        readModel.poll();
+
+        assertThat(readModel.view().orders()).usingRecursiveFieldByFieldElementComparator().isEqualTo(before);
+    }
+
+    @Test
+    void reconcileDropsOrdersDeletedWithoutAnEvent() {
+        readModel.bootstrap();
+
+        em.remove(em.find(Order.class, order2Id));
+        em.flush();
+        readModel.reconcile();
+
+        assertThat(readModel.view().orders()).extracting(OrderDTO::getId).containsExactly(order1Id);
+    }
+
+    private Order persistOrder(String description, Product... products) {
+        Order order = new Order();
+        order.setDescription(description);
+        order.setCustomer(em.getReference(Customer.class, customer.getId()));
+        for (Product product : products) {
+            order.getProducts().add(em.getReference(Product.class, product.getId()));
+        }
+        em.persist(order);
+        return order;
+    }
+
+    private static List<Long> productIds(OrderDTO order) {
+        return order.getProducts().stream().map(ProductSummaryDTO::getId).toList();
+    }
+
+    /** Containerless stand-in for the database change stream: events are handed to the next poll. */
+    static class InMemoryOrderChangeFeed implements OrderChangeFeed {
+        private final List<OrderChangeEvent> pending = new ArrayList<>();
+        boolean started;
+        int polls;
+
+        @Override
+        public void start() {
+            started = true;
+        }
+
+        @Override
+        public List<OrderChangeEvent> poll() {
+            polls++;
+            List<OrderChangeEvent> events = List.copyOf(pending);
+            pending.clear();
+            return events;
+        }
+
+        void emit(OrderChangeEvent... events) {
+            pending.addAll(List.of(events));
+        }
+    }
+}
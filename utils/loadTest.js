@@ -0,0 +1,93 @@
+// Closed-loop load test: CONCURRENCY workers each send requests back to back for DURATION seconds and the
+// throughput and latency percentiles are printed per endpoint. Needs Node 18+ (built-in fetch), no dependencies.
+//
+//   node ./loadTest.js                                   - defaults below against http://localhost:8080
+//   BASE_URL=http://host:8080 CONCURRENCY=2000 DURATION=60 node ./loadTest.js
+//   ENDPOINTS="/order/1,/customer?limit=50" node ./loadTest.js
+//
+// Run it once with SPRING_THREADS_VIRTUAL_ENABLED=false and once with true (same pool size, same data) to compare the
+// platform and virtual thread modes; with -Djdk.tracePinnedThreads=short in JAVA_OPTS the application also logs any
+// virtual thread that blocks while pinned to its carrier.
+
+const baseUrl = process.env.BASE_URL || 'http://localhost:8080';
+const concurrency = parseInt(process.env.CONCURRENCY || '500', 10);
+const durationSeconds = parseInt(process.env.DURATION || '30', 10);
+const warmupSeconds = parseInt(process.env.WARMUP || '5', 10);
+const endpoints = (process.env.ENDPOINTS || '/order/1,/customer/1,/products/1,/order?limit=50,/customer/search?name=an&limit=20')
+    .split(',')
+    .map(e => e.trim())
+    .filter(e => e.length > 0);
+
+function newStats() {
+    return { latencies: [], errors: 0, statuses: {} };
+}
+
+async function worker(id, deadline, recording, stats) {
+    let i = id;
+    while (Date.now() < deadline) {
+        const path = endpoints[i++ % endpoints.length];
+        const started = process.hrtime.bigint();
+        let status = 'error';
+        try {
+            const res = await fetch(baseUrl + path);
+            await res.arrayBuffer();
+            status = res.status;
+        } catch (e) {
+            status = e.cause && e.cause.code ? e.cause.code : 'error';
+        }
+        if (!recording()) {
+            continue;
+        }
+        const s = stats[path];
+        s.statuses[status] = (s.statuses[status] || 0) + 1;
+        if (typeof status === 'number' && status < 400) {
+            s.latencies.push(Number(process.hrtime.bigint() - started) / 1e6);
+        } else {
+            s.errors++;
+        }
+    }
+}
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) return NaN;
+    return sorted[Math.min(sorted.length - 1, Math.floor(sorted.length * p))];
+}
+
+function report(stats, seconds) {
+    const rows = [];
+    let total = 0;
+    let errors = 0;
+    for (const [path, s] of Object.entries(stats)) {
+        const sorted = s.latencies.slice().sort((a, b) => a - b);
+        total += sorted.length;
+        errors += s.errors;
+        rows.push({
+            endpoint: path,
+            'req/s': (sorted.length / seconds).toFixed(1),
+            'p50 ms': percentile(sorted, 0.5).toFixed(1),
+            'p95 ms': percentile(sorted, 0.95).toFixed(1),
+            'p99 ms': percentile(sorted, 0.99).toFixed(1),
+            errors: s.errors,
+            statuses: JSON.stringify(s.statuses),
+        });
+    }
+    console.table(rows);
+    console.log(`total ${(total / seconds).toFixed(1)} req/s, ${errors} errors, concurrency ${concurrency}, ${seconds}s`);
+}
+
+async function main() {
+    const stats = Object.fromEntries(endpoints.map(e => [e, newStats()]));
+    const start = Date.now();
+    const measureFrom = start + warmupSeconds * 1000;
+    const deadline = measureFrom + durationSeconds * 1000;
+    const recording = () => Date.now() >= measureFrom;
+
+    console.log(`${concurrency} workers against ${baseUrl} for ${warmupSeconds}s warm-up + ${durationSeconds}s`);
+    await Promise.all(Array.from({ length: concurrency }, (_, id) => worker(id, deadline, recording, stats)));
+    report(stats, durationSeconds);
+}
+
+main().catch(e => {
+    console.error(e);
+    process.exit(1);
+});